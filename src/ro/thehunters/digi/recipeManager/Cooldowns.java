@@ -0,0 +1,438 @@
+package ro.thehunters.digi.recipeManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Cooldowns of recipes and results for players or globally, shared by all cooldown flags so they're kept on reload and saved on restart.<br>
+ * Cooldowns are stored by their cooldown id and player name and are removed once expired by a timing wheel that looks at one slot per second, so only active cooldowns are kept.
+ */
+public class Cooldowns
+{
+    private static final String SAVE_FILE = "cooldowns.dat";
+    private static final int MAGIC = 0x524D4344; // "RMCD"
+    private static final int FORMAT = 1;
+    
+    private static final int WHEEL_SLOTS = 512; // seconds for one wheel turn
+    private static final int SAVE_INTERVAL = 300; // seconds between saves if cooldowns changed
+    
+    private static final Map<String, Cooldown> cooldowns = new HashMap<String, Cooldown>();
+    private static final List<List<Cooldown>> wheel = new ArrayList<List<Cooldown>>(WHEEL_SLOTS);
+    private static final Object saveLock = new Object();
+    private static long saveSequence; // number of the last snapshot taken, in the main thread
+    private static long savedSequence; // number of the last snapshot written, guarded by saveLock
+    
+    private static BukkitTask task;
+    private static long wheelTime; // last processed second
+    private static int saveTimer;
+    private static boolean changed;
+    
+    static
+    {
+        for(int i = 0; i < WHEEL_SLOTS; i++)
+        {
+            wheel.add(new ArrayList<Cooldown>());
+        }
+    }
+    
+    private static class Cooldown
+    {
+        private final String key;
+        private long expires; // milliseconds
+        private int slot = -1; // wheel slot that holds it, -1 if none
+        private boolean persistent = true; // saved to file
+        
+        private Cooldown(String key)
+        {
+            this.key = key;
+        }
+    }
+    
+    private Cooldowns()
+    {
+    }
+    
+    protected static void init()
+    {
+    }
+    
+    protected static void start()
+    {
+        if(task != null)
+        {
+            return;
+        }
+        
+        wheelTime = System.currentTimeMillis() / 1000;
+        
+        task = Bukkit.getScheduler().runTaskTimer(RecipeManager.getPlugin(), new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                tick();
+            }
+        }, 20, 20);
+    }
+    
+    protected static void stop()
+    {
+        if(task != null)
+        {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    protected static void clean()
+    {
+        stop();
+        cooldowns.clear();
+        
+        for(List<Cooldown> slot : wheel)
+        {
+            slot.clear();
+        }
+        
+        changed = false;
+    }
+    
+    /**
+     * Gets the remaining cooldown time.
+     * 
+     * @param id
+     *            cooldown id, unique for a recipe or result
+     * @param playerName
+     *            player name or null for global cooldown
+     * @return milliseconds left or 0 if there is no cooldown
+     */
+    public static long getTimeLeft(String id, String playerName)
+    {
+        Cooldown cooldown = cooldowns.get(getKey(id, playerName));
+        
+        if(cooldown == null)
+        {
+            return 0;
+        }
+        
+        return Math.max(cooldown.expires - System.currentTimeMillis(), 0);
+    }
+    
+    /**
+     * Sets the cooldown, replacing the previous one.
+     * 
+     * @param id
+     *            cooldown id, unique for a recipe or result
+     * @param playerName
+     *            player name or null for global cooldown
+     * @param millis
+     *            cooldown time in milliseconds, 0 or less removes the cooldown
+     */
+    public static void set(String id, String playerName, long millis)
+    {
+        set(id, playerName, millis, true);
+    }
+    
+    /**
+     * Sets the cooldown, replacing the previous one.
+     * 
+     * @param id
+     *            cooldown id, unique for a recipe or result
+     * @param playerName
+     *            player name or null for global cooldown
+     * @param millis
+     *            cooldown time in milliseconds, 0 or less removes the cooldown
+     * @param persistent
+     *            false if the id doesn't mean the same thing after a restart, the cooldown is not saved then
+     */
+    public static void set(String id, String playerName, long millis, boolean persistent)
+    {
+        String key = getKey(id, playerName);
+        
+        if(millis <= 0)
+        {
+            Cooldown cooldown = cooldowns.remove(key);
+            
+            if(cooldown != null)
+            {
+                unschedule(cooldown);
+                changed = true;
+            }
+            
+            return;
+        }
+        
+        Cooldown cooldown = cooldowns.get(key);
+        
+        if(cooldown == null)
+        {
+            cooldown = new Cooldown(key);
+            cooldowns.put(key, cooldown);
+        }
+        
+        cooldown.persistent = persistent;
+        schedule(cooldown, System.currentTimeMillis() + millis);
+        changed = true;
+    }
+    
+    /**
+     * @return amount of active cooldowns
+     */
+    public static int getCount()
+    {
+        return cooldowns.size();
+    }
+    
+    private static String getKey(String id, String playerName)
+    {
+        Validate.notNull(id, "id argument must not be null!");
+        
+        return (playerName == null ? id : id + '\0' + playerName);
+    }
+    
+    private static void schedule(Cooldown cooldown, long expires)
+    {
+        int slot = (int)(((expires + 999) / 1000) % WHEEL_SLOTS); // first second when it's expired
+        
+        if(cooldown.slot != slot)
+        {
+            unschedule(cooldown);
+            wheel.get(slot).add(cooldown);
+            cooldown.slot = slot;
+        }
+        
+        cooldown.expires = expires;
+    }
+    
+    private static void unschedule(Cooldown cooldown)
+    {
+        if(cooldown.slot >= 0)
+        {
+            wheel.get(cooldown.slot).remove(cooldown);
+            cooldown.slot = -1;
+        }
+    }
+    
+    private static void tick()
+    {
+        long time = System.currentTimeMillis();
+        long second = time / 1000;
+        
+        // process all slots passed since last tick, at most one wheel turn if server was lagging
+        for(long s = Math.max(wheelTime + 1, second - WHEEL_SLOTS + 1); s <= second; s++)
+        {
+            int slot = (int)(s % WHEEL_SLOTS);
+            Iterator<Cooldown> it = wheel.get(slot).iterator();
+            
+            while(it.hasNext())
+            {
+                Cooldown cooldown = it.next();
+                
+                if(cooldown.expires <= time)
+                {
+                    it.remove();
+                    cooldown.slot = -1;
+                    cooldowns.remove(cooldown.key);
+                }
+            }
+        }
+        
+        wheelTime = second;
+        
+        if(++saveTimer >= SAVE_INTERVAL)
+        {
+            saveTimer = 0;
+            
+            if(changed)
+            {
+                saveAsync();
+            }
+        }
+    }
+    
+    public static void load()
+    {
+        File file = getFile();
+        
+        if(!file.exists())
+        {
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        
+        try
+        {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            
+            try
+            {
+                if(in.readInt() != MAGIC || in.readInt() != FORMAT)
+                {
+                    Messages.info("<yellow>Cooldowns file '" + file.getName() + "' has an unknown format, ignored.");
+                    return;
+                }
+                
+                int num = in.readInt();
+                
+                for(int i = 0; i < num; i++)
+                {
+                    String key = in.readUTF();
+                    long expires = in.readLong();
+                    
+                    if(expires > start)
+                    {
+                        Cooldown cooldown = new Cooldown(key);
+                        cooldowns.put(key, cooldown);
+                        schedule(cooldown, expires);
+                    }
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch(Throwable e)
+        {
+            Messages.error(null, e, "Failed to read '" + file.getPath() + "' file!");
+        }
+        
+        Messages.log("Loaded " + cooldowns.size() + " cooldowns in " + ((System.currentTimeMillis() - start) / 1000.0) + " seconds");
+    }
+    
+    /**
+     * Saves the active cooldowns in this thread.
+     */
+    public static void save()
+    {
+        String[] keys = new String[cooldowns.size()];
+        long[] expires = new long[keys.length];
+        long sequence = snapshot(keys, expires);
+        
+        write(sequence, keys, expires);
+    }
+    
+    /**
+     * Saves the active cooldowns in another thread.
+     */
+    public static void saveAsync()
+    {
+        final String[] keys = new String[cooldowns.size()];
+        final long[] expires = new long[keys.length];
+        final long sequence = snapshot(keys, expires);
+        
+        Bukkit.getScheduler().runTaskAsynchronously(RecipeManager.getPlugin(), new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                write(sequence, keys, expires);
+            }
+        });
+    }
+    
+    /**
+     * @return the snapshot's sequence number, newer snapshots have higher numbers
+     */
+    private static long snapshot(String[] keys, long[] expires)
+    {
+        int i = 0;
+        
+        for(Cooldown cooldown : cooldowns.values())
+        {
+            keys[i] = (cooldown.persistent ? cooldown.key : null); // null keys are not saved
+            expires[i] = cooldown.expires;
+            i++;
+        }
+        
+        changed = false;
+        
+        return ++saveSequence;
+    }
+    
+    private static void write(long sequence, String[] keys, long[] expires)
+    {
+        synchronized(saveLock)
+        {
+            if(sequence <= savedSequence)
+            {
+                return; // a newer snapshot was already written, an async save can start after the save on disable
+            }
+            
+            savedSequence = sequence;
+            
+            File file = getFile();
+            File temp = new File(file.getPath() + ".tmp");
+            long time = System.currentTimeMillis();
+            int num = 0;
+            
+            for(int i = 0; i < keys.length; i++)
+            {
+                if(keys[i] != null && expires[i] > time)
+                {
+                    num++;
+                }
+            }
+            
+            try
+            {
+                if(!file.getParentFile().exists() && !file.getParentFile().mkdirs())
+                {
+                    throw new IOException("Couldn't create directories: " + file.getParent());
+                }
+                
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+                
+                try
+                {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT);
+                    out.writeInt(num);
+                    
+                    for(int i = 0; i < keys.length; i++)
+                    {
+                        if(keys[i] != null && expires[i] > time)
+                        {
+                            out.writeUTF(keys[i]);
+                            out.writeLong(expires[i]);
+                        }
+                    }
+                }
+                finally
+                {
+                    out.close();
+                }
+                
+                if((file.exists() && !file.delete()) || !temp.renameTo(file))
+                {
+                    throw new IOException("Couldn't replace " + file.getPath());
+                }
+            }
+            catch(Throwable e)
+            {
+                Messages.error(null, e, "Failed to save '" + file.getPath() + "' file!");
+            }
+        }
+    }
+    
+    private static File getFile()
+    {
+        return new File(RecipeManager.getPlugin().getDataFolder() + File.separator + "save" + File.separator + SAVE_FILE);
+    }
+}
@@ -1,8 +1,9 @@
 package ro.thehunters.digi.recipeManager;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.bukkit.ChatColor;
@@ -14,10 +15,23 @@ import org.bukkit.ChatColor;
  */
 public class ErrorReporter
 {
-    private static HashMap<String, List<String>> fileErrors;
-    private static String currentFile;
-    private static int currentLine;
-    private static boolean ignore = false;
+    private static class Context
+    {
+        private Map<String, List<String>> fileErrors;
+        private String currentFile;
+        private int currentLine;
+        private boolean ignore = false;
+    }
+    
+    private static final Context global = new Context();
+    private static final ThreadLocal<Context> local = new ThreadLocal<Context>();
+    
+    private static Context context()
+    {
+        Context context = local.get();
+        
+        return (context == null ? global : context);
+    }
     
     /**
      * Starts catching reported errors and stores them in a list for later printing.<br>
@@ -26,7 +40,7 @@ public class ErrorReporter
     public static void startCatching()
     {
         stopCatching();
-        fileErrors = new HashMap<String, List<String>>();
+        context().fileErrors = new LinkedHashMap<String, List<String>>();
     }
     
     /**
@@ -35,10 +49,65 @@ public class ErrorReporter
      */
     public static void stopCatching()
     {
-        fileErrors = null;
-        currentFile = null;
-        currentLine = 0;
-        ignore = false;
+        Context context = context();
+        context.fileErrors = null;
+        context.currentFile = null;
+        context.currentLine = 0;
+        context.ignore = false;
+    }
+    
+    /**
+     * Starts catching errors reported from the current thread separately from other threads, until {@link #stopLocalCatching()} is called.<br>
+     * Used to parse files in parallel, each task gets its own file, line and errors.
+     */
+    protected static void startLocalCatching()
+    {
+        local.set(new Context());
+        startCatching();
+    }
+    
+    /**
+     * Stops catching errors for the current thread, see {@link #startLocalCatching()}.
+     * 
+     * @return errors reported since, by file, to be added with {@link #addErrors(Map)}
+     */
+    protected static Map<String, List<String>> stopLocalCatching()
+    {
+        Context context = local.get();
+        local.remove();
+        
+        return (context == null ? new LinkedHashMap<String, List<String>>() : context.fileErrors);
+    }
+    
+    /**
+     * Adds errors that were caught separately, see {@link #startLocalCatching()}.<br>
+     * Errors are only added if catching.
+     * 
+     * @param errors
+     *            errors by file
+     */
+    protected static void addErrors(Map<String, List<String>> errors)
+    {
+        Map<String, List<String>> fileErrors = context().fileErrors;
+        
+        if(fileErrors == null)
+        {
+            return;
+        }
+        
+        for(Entry<String, List<String>> entry : errors.entrySet())
+        {
+            List<String> list = fileErrors.get(entry.getKey());
+            
+            if(list == null)
+            {
+                fileErrors.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+            }
+            else
+            {
+                list.addAll(entry.getValue());
+            }
+        }
     }
     
     /**
@@ -48,7 +117,7 @@ public class ErrorReporter
      */
     public static boolean isCatching()
     {
-        return (fileErrors != null);
+        return (context().fileErrors != null);
     }
     
     /**
@@ -58,7 +127,7 @@ public class ErrorReporter
      */
     public static int getCatchedAmount()
     {
-        return (isCatching() ? fileErrors.size() : -1);
+        return (isCatching() ? context().fileErrors.size() : -1);
     }
     
     /**
@@ -68,7 +137,9 @@ public class ErrorReporter
      */
     public static void print(String logFile)
     {
-        if(!isCatching() || fileErrors.isEmpty())
+        Map<String, List<String>> fileErrors = context().fileErrors;
+        
+        if(fileErrors == null || fileErrors.isEmpty())
         {
             stopCatching();
             return;
@@ -146,8 +217,9 @@ public class ErrorReporter
      */
     public static void setFile(String file)
     {
-        currentFile = file;
-        currentLine = 0;
+        Context context = context();
+        context.currentFile = file;
+        context.currentLine = 0;
     }
     
     /**
@@ -155,7 +227,7 @@ public class ErrorReporter
      */
     public static String getFile()
     {
-        return currentFile;
+        return context().currentFile;
     }
     
     /**
@@ -166,7 +238,7 @@ public class ErrorReporter
      */
     public static void setLine(int line)
     {
-        currentLine = line;
+        context().currentLine = line;
     }
     
     /**
@@ -174,7 +246,7 @@ public class ErrorReporter
      */
     public static int getLine()
     {
-        return currentLine;
+        return context().currentLine;
     }
     
     /**
@@ -187,13 +259,13 @@ public class ErrorReporter
     {
         if(isCatching())
         {
-            ignore = set;
+            context().ignore = set;
         }
     }
     
     protected static boolean getIgnoreErrors()
     {
-        return ignore;
+        return context().ignore;
     }
     
     public static void warning(String warning)
@@ -234,22 +306,24 @@ public class ErrorReporter
     
     private static void entry(String type, String message, String tip)
     {
-        if(!isCatching())
+        Context context = context();
+        
+        if(context.fileErrors == null)
         {
             Messages.info(type + ":" + ChatColor.RESET + " " + message + (tip != null ? ChatColor.DARK_GREEN + " TIP: " + ChatColor.GRAY + tip : ""));
         }
-        else if(!ignore)
+        else if(!context.ignore)
         {
-            List<String> errors = fileErrors.get(currentFile);
+            List<String> errors = context.fileErrors.get(context.currentFile);
             
             if(errors == null)
             {
                 errors = new ArrayList<String>();
             }
             
-            errors.add("line " + String.format("%-5d", currentLine) + type + ": " + ChatColor.RESET + message + (tip != null ? Files.NL + ChatColor.DARK_GREEN + "          TIP: " + ChatColor.GRAY + tip : ""));
+            errors.add("line " + String.format("%-5d", context.currentLine) + type + ": " + ChatColor.RESET + message + (tip != null ? Files.NL + ChatColor.DARK_GREEN + "          TIP: " + ChatColor.GRAY + tip : ""));
             
-            fileErrors.put(currentFile, errors);
+            context.fileErrors.put(context.currentFile, errors);
         }
     }
 }
@@ -33,6 +33,7 @@ import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
@@ -55,9 +56,11 @@ import ro.thehunters.digi.recipeManager.api.events.RecipeManagerCraftEvent;
 import ro.thehunters.digi.recipeManager.api.events.RecipeManagerPrepareCraftEvent;
 import ro.thehunters.digi.recipeManager.data.BlockID;
 import ro.thehunters.digi.recipeManager.data.FurnaceData;
+import ro.thehunters.digi.recipeManager.flags.ArgBuilder;
 import ro.thehunters.digi.recipeManager.flags.Args;
 import ro.thehunters.digi.recipeManager.flags.FlagType;
 import ro.thehunters.digi.recipeManager.flags.Flaggable;
+import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
 import ro.thehunters.digi.recipeManager.recipes.FuelRecipe;
 import ro.thehunters.digi.recipeManager.recipes.ItemResult;
 import ro.thehunters.digi.recipeManager.recipes.SmeltRecipe;
@@ -136,10 +139,15 @@ public class Events implements Listener
                 return; // stop here if it's a special recipe
             }
             
-            WorkbenchRecipe recipe = RecipeManager.getRecipes().getWorkbenchRecipe(bukkitRecipe);
+            WorkbenchRecipe recipe = RecipeManager.getRecipes().getWorkbenchRecipe(bukkitRecipe, inv.getMatrix());
             
             if(recipe == null)
             {
+                if(RecipeManager.getRecipes().isCustomWorkbenchRecipe(recipeResult))
+                {
+                    inv.setResult(null); // marked result of a recipe that is not indexed, don't give it without checking flags
+                }
+                
                 return; // not a custom recipe or recipe not found, no need to move on
             }
             
@@ -305,16 +313,22 @@ public class Events implements Listener
             }
             
             Recipe bukkitRecipe = event.getRecipe();
-            WorkbenchRecipe recipe = RecipeManager.getRecipes().getWorkbenchRecipe(bukkitRecipe);
+            WorkbenchRecipe recipe = RecipeManager.getRecipes().getWorkbenchRecipe(bukkitRecipe, inv.getMatrix());
             
             if(recipe == null)
             {
+                if(bukkitRecipe != null && RecipeManager.getRecipes().isCustomWorkbenchRecipe(bukkitRecipe.getResult()))
+                {
+                    event.setCancelled(true); // marked result of a recipe that is not indexed, don't give it without checking flags
+                    Messages.sendDenySound(player, location);
+                }
+                
                 return;
             }
             
             Args a = Args.create().player(player).inventory(inv).recipe(recipe).location(location).build();
             
-            if(!recipe.checkFlags(a))
+            if(!recipe.checkFlags(a, true))
             {
 //                a.sendReasons(a.player(), Messages.FLAG_PREFIX_RECIPE); // Disabled - spammy
                 Messages.sendDenySound(player, location);
@@ -336,13 +350,13 @@ public class Events implements Listener
             
             result = callEvent.getResult(); // get the result from the event if it was changed
             
-            a = Args.create().player(player).inventory(inv).recipe(recipe).location(location).result(result).build();
+            a = ArgBuilder.reuse(a).player(player).inventory(inv).recipe(recipe).location(location).result(result).build();
             
             int times = craftResult(event, inv, player, recipe, result, a); // craft the result
             
             if(result != null)
             {
-                a = Args.create().player(player).inventory(inv).recipe(recipe).location(location).result(result).build();
+                a = ArgBuilder.reuse(a).player(player).inventory(inv).recipe(recipe).location(location).result(result).build();
                 
                 if(times > 0)
                 {
@@ -608,6 +622,12 @@ public class Events implements Listener
         Workbenches.remove(event.getEntity());
     }
     
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerChangedWorld(PlayerChangedWorldEvent event)
+    {
+        Players.clearFlagPermissions(event.getPlayer()); // permissions plugins can have per-world permissions
+    }
+    
     @EventHandler(priority = EventPriority.MONITOR)
     public void playerQuit(PlayerQuitEvent event)
     {
@@ -1209,12 +1229,19 @@ public class Events implements Listener
                 return null;
             }
             
-            for(SmeltRecipe r : RecipeManager.getRecipes().indexSmelt.values())
+            RecipeSnapshot snapshot = RecipeManager.getRecipes().getSnapshot();
+            
+            for(BaseRecipe r : snapshot.findRecipes(false, result))
             {
-                if(result.isSimilar(r.getResult()))
+                if(r instanceof SmeltRecipe && result.isSimilar(((SmeltRecipe)r).getResult()))
                 {
-                    smeltRecipe = r;
-                    break;
+                    SmeltRecipe sr = (SmeltRecipe)r;
+                    
+                    if(snapshot.indexSmelt.get(sr.getIndexKey()) == sr) // only registered custom recipes
+                    {
+                        smeltRecipe = sr;
+                        break;
+                    }
                 }
             }
         }
@@ -0,0 +1,218 @@
+package ro.thehunters.digi.recipeManager;
+
+import java.io.File;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Watches the recipes and books folders and reloads them when their files change.<br>
+ * Files are polled once per second in another thread by their last modified time and size, a burst of changes only triggers one reload after files stopped changing for the configured delay.<br>
+ * Recipe reloads only parse the changed files again because of the parse cache and only the changed recipes are registered.
+ */
+public class FileWatcher extends BukkitRunnable
+{
+    private static FileWatcher instance;
+    
+    private final File dirRecipes;
+    private final File dirBooks;
+    private final long delay;
+    
+    private long recipesState;
+    private long booksState;
+    private boolean recipesChanged;
+    private boolean booksChanged;
+    private long lastChange;
+    private volatile boolean postponed; // recipes changed but a reload was already running
+    
+    protected static void init()
+    {
+    }
+    
+    private FileWatcher()
+    {
+        instance = this;
+        
+        File dir = RecipeManager.getPlugin().getDataFolder();
+        
+        dirRecipes = new File(dir, "recipes");
+        dirBooks = new File(dir, "books");
+        delay = RecipeManager.getSettings().WATCH_FILES_DELAY * 1000L;
+        
+        recipesState = scanRecipes(dirRecipes);
+        booksState = scanBooks(dirBooks);
+        
+        runTaskTimerAsynchronously(RecipeManager.getPlugin(), 20, 20);
+    }
+    
+    protected static void clean()
+    {
+        stop();
+    }
+    
+    /**
+     * (Re)Start watching if it's enabled in settings
+     */
+    protected static void start()
+    {
+        stop();
+        
+        if(RecipeManager.getSettings().WATCH_FILES_ENABLED)
+        {
+            new FileWatcher();
+        }
+    }
+    
+    /**
+     * Stop if started
+     */
+    protected static void stop()
+    {
+        if(instance != null)
+        {
+            instance.cancel();
+            instance = null;
+        }
+    }
+    
+    @Override
+    public void run()
+    {
+        long time = System.currentTimeMillis();
+        long state = scanRecipes(dirRecipes);
+        
+        if(state != recipesState)
+        {
+            recipesState = state;
+            recipesChanged = true;
+            lastChange = time;
+        }
+        
+        state = scanBooks(dirBooks);
+        
+        if(state != booksState)
+        {
+            booksState = state;
+            booksChanged = true;
+            lastChange = time;
+        }
+        
+        if(postponed)
+        {
+            postponed = false;
+            recipesChanged = true;
+        }
+        
+        if((!recipesChanged && !booksChanged) || (time - lastChange) < delay)
+        {
+            return;
+        }
+        
+        if(recipesChanged && RecipeProcessor.isRunning())
+        {
+            return; // wait for the running reload to finish, it might not have seen the changes
+        }
+        
+        final boolean reloadRecipes = recipesChanged;
+        final boolean reloadBooks = booksChanged;
+        
+        recipesChanged = false;
+        booksChanged = false;
+        
+        new BukkitRunnable()
+        {
+            @Override
+            public void run()
+            {
+                if(instance != FileWatcher.this || !RecipeManager.isPluginFullyEnabled())
+                {
+                    return;
+                }
+                
+                if(reloadBooks)
+                {
+                    Messages.info("<gray>Book files changed, reloading books...");
+                    RecipeManager.getRecipeBooks().reload(null);
+                }
+                
+                if(reloadRecipes)
+                {
+                    if(RecipeProcessor.isRunning())
+                    {
+                        postponed = true; // a reload started in the meantime, try again after it finishes
+                    }
+                    else
+                    {
+                        Messages.info("<gray>Recipe files changed, reloading recipes...");
+                        RecipeProcessor.reload(null, false);
+                    }
+                }
+            }
+        }.runTask(RecipeManager.getPlugin());
+    }
+    
+    /**
+     * @return state of the recipe files, the sum of their path, size and last modified time hashes
+     */
+    private static long scanRecipes(File dir)
+    {
+        File[] files = dir.listFiles();
+        long state = 0;
+        
+        if(files == null)
+        {
+            return state;
+        }
+        
+        for(File file : files)
+        {
+            if(file.isDirectory())
+            {
+                if(!file.getName().equalsIgnoreCase("disabled"))
+                {
+                    state += scanRecipes(file);
+                }
+            }
+            else if(Files.FILE_RECIPE_EXTENSIONS.contains(getExtension(file)))
+            {
+                state += fileState(file);
+            }
+        }
+        
+        return state;
+    }
+    
+    private static long scanBooks(File dir)
+    {
+        File[] files = dir.listFiles();
+        long state = 0;
+        
+        if(files == null)
+        {
+            return state;
+        }
+        
+        for(File file : files)
+        {
+            if(file.isFile() && getExtension(file).equals(".yml"))
+            {
+                state += fileState(file);
+            }
+        }
+        
+        return state;
+    }
+    
+    private static String getExtension(File file)
+    {
+        int i = file.getName().lastIndexOf('.');
+        return (i > 0 ? file.getName().substring(i).toLowerCase() : file.getName());
+    }
+    
+    private static long fileState(File file)
+    {
+        long hash = file.getPath().hashCode();
+        hash = (31 * hash) + file.lastModified();
+        hash = (31 * hash) + file.length();
+        return hash;
+    }
+}
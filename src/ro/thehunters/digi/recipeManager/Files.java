@@ -46,7 +46,7 @@ public class Files
     private final CommandSender sender;
     private final String DIR_PLUGIN = RecipeManager.getPlugin().getDataFolder() + File.separator;
     
-    public static final String LASTCHANGED_CONFIG = "2.0beta";
+    public static final String LASTCHANGED_CONFIG = "2.0beta3";
     public static final String LASTCHANGED_MESSAGES = "2.0beta";
     public static final String LASTCHANGED_ITEM_ALIASES = "2.0alpha3";
     public static final String LASTCHANGED_ENCHANT_ALIASES = "2.0alpha3";
@@ -58,6 +58,7 @@ public class Files
     public static final String FILE_ENCHANT_ALIASES = "enchant aliases.yml";
     
     public static final String FILE_USED_VERSION = "used.version";
+    public static final String FILE_COMPILED_RECIPES = "compiled recipes.dat";
     public static final String FILE_CHANGELOG = "changelog.txt";
     
     public static final String FILE_INFO_BASICS = "basic recipes.html";
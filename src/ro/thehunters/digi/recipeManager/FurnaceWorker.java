@@ -118,7 +118,7 @@ class FurnaceWorker implements Runnable
             
             ItemResult result = recipe.getResult();
             
-            Args a = Args.create().inventory(inventory).location(furnace.getLocation()).player(data.getSmelter()).recipe(recipe).result(result).build();
+            Args a = Args.create().inventory(inventory).location(furnace.getLocation()).player(data.getSmelter()).recipe(recipe).result(result).build(); // new for each furnace, flags can keep it for later
             
             result.sendPrepare(a);
             
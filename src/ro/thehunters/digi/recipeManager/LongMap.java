@@ -0,0 +1,303 @@
+package ro.thehunters.digi.recipeManager;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Map with primitive long keys used for the recipe quick-find indexes that need more than an int, like packed item type and data keys.<br>
+ * Uses open addressing with linear probing so lookups don't box the key or create entry objects.<br>
+ * Null values are not supported, a null value means an empty slot.
+ * 
+ * @param <V>
+ *            value type
+ */
+public class LongMap<V>
+{
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.5f;
+    
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    
+    public LongMap()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param expected
+     *            expected amount of entries, used to size the table
+     */
+    public LongMap(int expected)
+    {
+        int capacity = 4;
+        
+        while(capacity * LOAD_FACTOR < expected)
+        {
+            capacity <<= 1;
+        }
+        
+        allocate(capacity);
+    }
+    
+    /**
+     * Creates a copy of the specified map.
+     * 
+     * @param map
+     */
+    public LongMap(LongMap<V> map)
+    {
+        keys = map.keys.clone();
+        values = map.values.clone();
+        size = map.size;
+        mask = map.mask;
+        resizeAt = map.resizeAt;
+    }
+    
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int)(capacity * LOAD_FACTOR);
+    }
+    
+    private static int slot(long key, int mask)
+    {
+        long h = key * 0x9E3779B97F4A7C15L; // spread packed keys over the table
+        int i = (int)(h ^ (h >>> 32));
+        
+        return (i ^ (i >>> 16)) & mask;
+    }
+    
+    /**
+     * @param key
+     * @return value for key or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        int i = slot(key, mask);
+        Object value;
+        
+        while((value = values[i]) != null)
+        {
+            if(keys[i] == key)
+            {
+                return (V)value;
+            }
+            
+            i = (i + 1) & mask;
+        }
+        
+        return null;
+    }
+    
+    public boolean containsKey(long key)
+    {
+        return get(key) != null;
+    }
+    
+    /**
+     * @param key
+     * @param value
+     *            must not be null
+     * @return previous value for key or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        if(value == null)
+        {
+            throw new IllegalArgumentException("LongMap does not support null values!");
+        }
+        
+        int i = slot(key, mask);
+        Object old;
+        
+        while((old = values[i]) != null)
+        {
+            if(keys[i] == key)
+            {
+                values[i] = value;
+                return (V)old;
+            }
+            
+            i = (i + 1) & mask;
+        }
+        
+        keys[i] = key;
+        values[i] = value;
+        
+        if(++size > resizeAt)
+        {
+            rehash(keys.length << 1);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * @param key
+     * @return removed value or null if key wasn't found
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        int i = slot(key, mask);
+        Object value;
+        
+        while((value = values[i]) != null)
+        {
+            if(keys[i] == key)
+            {
+                size--;
+                shiftBack(i);
+                return (V)value;
+            }
+            
+            i = (i + 1) & mask;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Closes the gap left by a removed entry so probing chains stay intact.
+     */
+    private void shiftBack(int gap)
+    {
+        int i = gap;
+        
+        while(true)
+        {
+            i = (i + 1) & mask;
+            
+            if(values[i] == null)
+            {
+                break;
+            }
+            
+            int home = slot(keys[i], mask);
+            
+            // move entry into the gap only if its home slot isn't cyclically between the gap and itself
+            if(gap <= i ? (home <= gap || home > i) : (home <= gap && home > i))
+            {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        
+        values[gap] = null;
+    }
+    
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        
+        allocate(capacity);
+        
+        for(int i = 0; i < oldValues.length; i++)
+        {
+            if(oldValues[i] != null)
+            {
+                int s = slot(oldKeys[i], mask);
+                
+                while(values[s] != null)
+                {
+                    s = (s + 1) & mask;
+                }
+                
+                keys[s] = oldKeys[i];
+                values[s] = oldValues[i];
+            }
+        }
+    }
+    
+    public int size()
+    {
+        return size;
+    }
+    
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+    
+    public void clear()
+    {
+        if(size > 0)
+        {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+    
+    /**
+     * @return a read-only view of the values, iteration order is unspecified
+     */
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return new Iterator<V>()
+                {
+                    private int index = advance(0);
+                    
+                    private int advance(int i)
+                    {
+                        while(i < values.length && values[i] == null)
+                        {
+                            i++;
+                        }
+                        
+                        return i;
+                    }
+                    
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return index < values.length;
+                    }
+                    
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public V next()
+                    {
+                        if(index >= values.length)
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        
+                        V value = (V)values[index];
+                        index = advance(index + 1);
+                        return value;
+                    }
+                    
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+            
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+}
@@ -217,11 +217,13 @@ public enum Messages
     
     private String path;
     private String message;
+    private String colored; // message with colors already translated
     
     private Messages(String message)
     {
         this.path = name().replace('_', '.').toLowerCase();
         this.message = message;
+        this.colored = (message == null ? null : Tools.parseColors(message, false));
     }
     
     private void asign()
@@ -232,6 +234,8 @@ public enum Messages
         {
             message = null; // disable message if empty or 'false'
         }
+        
+        colored = (message == null ? null : Tools.parseColors(message, false));
     }
     
     /**
@@ -285,13 +289,13 @@ public enum Messages
     
     /**
      * Gets the message for the selected enum.<br>
-     * Processes colors as well.
+     * Colors are translated when messages are loaded.
      * 
      * @return
      */
     public String get()
     {
-        return Tools.parseColors(message, false);
+        return colored;
     }
     
     @Override
@@ -302,13 +306,13 @@ public enum Messages
     
     /**
      * Gets the message for the selected enum.<br>
-     * Processes colors and variables as well.
+     * Colors are translated when messages are loaded, only variables are processed.
      * 
      * @return
      */
     public String get(Object... variables)
     {
-        return Tools.replaceVariables(Tools.parseColors(message, false), variables);
+        return (colored == null ? null : Tools.replaceVariables(colored, variables));
     }
     
     public String getCustom(String customMessage, Object... variables)
@@ -345,7 +349,7 @@ public enum Messages
         
         if(message != null)
         {
-            send(sender, message);
+            sendColored(sender, colored);
         }
     }
     
@@ -375,7 +379,7 @@ public enum Messages
         }
         else if(message != null) // message not set to "false" (replaced with null to save memory)
         {
-            send(sender, message);
+            sendColored(sender, colored);
         }
     }
     
@@ -400,25 +404,17 @@ public enum Messages
             return;
         }
         
-        String msg = message;
-        
         if(customMessage != null) // has custom message
         {
-            if(customMessage.equals("false")) // if custom message is set to "false" then don't show the message
+            if(!customMessage.equals("false")) // if custom message is set to "false" then don't show the message
             {
-                return;
+                send(sender, Tools.replaceVariables(customMessage, variables));
             }
-            
-            msg = customMessage;
         }
-        else if(msg == null) // message is "false", don't show the message
+        else if(colored != null) // message is not "false"
         {
-            return;
+            sendColored(sender, Tools.replaceVariables(colored, variables));
         }
-        
-        msg = Tools.replaceVariables(msg, variables);
-        
-        send(sender, msg);
     }
     
     /**
@@ -511,6 +507,27 @@ public enum Messages
         sender.sendMessage(Tools.parseColors(message, (sender instanceof ConsoleCommandSender && !RecipeManager.getSettings().COLOR_CONSOLE)));
     }
     
+    /**
+     * Sends a message that has its colors already translated, colors are only removed for console if 'color-console' is disabled.
+     * 
+     * @param sender
+     * @param message
+     */
+    private static void sendColored(CommandSender sender, String message)
+    {
+        if(sender == null)
+        {
+            sender = Bukkit.getConsoleSender();
+        }
+        
+        if(sender instanceof ConsoleCommandSender)
+        {
+            message = "[RecipeManager] " + (RecipeManager.getSettings().COLOR_CONSOLE ? message : ChatColor.stripColor(message));
+        }
+        
+        sender.sendMessage(message);
+    }
+    
     public static void sendAndLog(CommandSender sender, String message)
     {
         if(sender instanceof Player)
@@ -7,10 +7,27 @@ import org.apache.commons.lang.Validate;
 import org.bukkit.entity.Player;
 
 import ro.thehunters.digi.recipeManager.commands.RecipeCommand;
+import ro.thehunters.digi.recipeManager.flags.FlagType;
 
 public class Players
 {
     private static final Map<String, Integer> joined = new HashMap<String, Integer>();
+    private static final Map<String, FlagPermissions> flagPermissions = new HashMap<String, FlagPermissions>();
+    
+    /**
+     * Flag permissions of a player, bits are indexed by FlagType ordinal.
+     */
+    private static class FlagPermissions
+    {
+        private final long expires;
+        private final long[] checked = new long[(FlagType.values().length + 63) / 64];
+        private final long[] allowed = new long[checked.length];
+        
+        private FlagPermissions(long expires)
+        {
+            this.expires = expires;
+        }
+    }
     
     private Players()
     {
@@ -23,12 +40,14 @@ public class Players
     protected static void clean()
     {
         joined.clear();
+        flagPermissions.clear();
         RecipeCommand.clean();
     }
     
     protected static void remove(Player player)
     {
         removeJoined(player);
+        clearFlagPermissions(player);
         RecipeCommand.clean(player.getName());
     }
     
@@ -37,6 +56,7 @@ public class Players
         Validate.notNull(player, "player can not be null");
         
         joined.put(player.getName(), (int)System.currentTimeMillis() / 1000);
+        clearFlagPermissions(player);
     }
     
     public static void removeJoined(Player player)
@@ -50,4 +70,75 @@ public class Players
     {
         return joined.get(player.getName());
     }
+    
+    /**
+     * Checks if player has permission to use the flag type, the result is remembered for the time set in config.
+     * 
+     * @param player
+     * @param type
+     * @return
+     */
+    public static boolean hasFlagPermission(Player player, FlagType type)
+    {
+        int refresh = RecipeManager.getSettings().FLAG_PERMISSIONS_REFRESH;
+        
+        if(refresh <= 0)
+        {
+            return checkFlagPermission(player, type);
+        }
+        
+        long time = System.currentTimeMillis();
+        FlagPermissions permissions = flagPermissions.get(player.getName());
+        
+        if(permissions == null || time > permissions.expires)
+        {
+            permissions = new FlagPermissions(time + (refresh * 1000L));
+            flagPermissions.put(player.getName(), permissions);
+        }
+        
+        int index = type.ordinal() >> 6;
+        long bit = 1L << (type.ordinal() & 63);
+        
+        if((permissions.checked[index] & bit) == 0)
+        {
+            if(checkFlagPermission(player, type))
+            {
+                permissions.allowed[index] |= bit;
+            }
+            
+            permissions.checked[index] |= bit;
+        }
+        
+        return (permissions.allowed[index] & bit) != 0;
+    }
+    
+    private static boolean checkFlagPermission(Player player, FlagType type)
+    {
+        if(player.hasPermission(Permissions.FLAG_ALL))
+        {
+            return true; // has permission for all flags
+        }
+        
+        for(String name : type.getNames())
+        {
+            if(player.hasPermission(Permissions.FLAG_PREFIX + name))
+            {
+                return true; // has permission for this flag
+            }
+        }
+        
+        return false; // no permission for flag
+    }
+    
+    /**
+     * Makes the player's flag permissions to be checked again on next use.
+     * 
+     * @param player
+     */
+    public static void clearFlagPermissions(Player player)
+    {
+        Validate.notNull(player, "player can not be null");
+        
+        flagPermissions.remove(player.getName());
+    }
 }
@@ -30,6 +30,7 @@ import ro.thehunters.digi.recipeManager.data.RecipeBook;
 import ro.thehunters.digi.recipeManager.flags.FlagAddToBook;
 import ro.thehunters.digi.recipeManager.flags.FlagType;
 import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
+import ro.thehunters.digi.recipeManager.recipes.BaseRecipe.RecipeType;
 import ro.thehunters.digi.recipeManager.recipes.CombineRecipe;
 import ro.thehunters.digi.recipeManager.recipes.CraftRecipe;
 import ro.thehunters.digi.recipeManager.recipes.FuelRecipe;
@@ -221,7 +222,7 @@ public class RecipeBooks
                 }
                 
                 // Get all recipes that have @recipebook flag for this book with this volume
-                for(BaseRecipe r : RecipeManager.getRecipes().index.keySet())
+                for(BaseRecipe r : RecipeManager.getRecipes().getRecipeList().keySet())
                 {
                     if(r.hasFlag(FlagType.ADDTOBOOK) && !allRecipes.contains(r.getName()))
                     {
@@ -286,7 +287,7 @@ public class RecipeBooks
         List<String> unsorted = new ArrayList<String>();
         
         // Get all recipes that have @recipebook flag for this book without defined volume
-        for(BaseRecipe r : RecipeManager.getRecipes().index.keySet())
+        for(BaseRecipe r : RecipeManager.getRecipes().getRecipeList().keySet())
         {
             if(r.hasFlag(FlagType.ADDTOBOOK) && !allRecipes.contains(r.getName()))
             {
@@ -338,7 +339,7 @@ public class RecipeBooks
         }
         
         // Get all recipes that have @recipebook flag for this book with defined volume
-        for(BaseRecipe r : RecipeManager.getRecipes().index.keySet())
+        for(BaseRecipe r : RecipeManager.getRecipes().getRecipeList().keySet())
         {
             if(r.hasFlag(FlagType.ADDTOBOOK) && !allRecipes.contains(r.getName()))
             {
@@ -442,23 +443,23 @@ public class RecipeBooks
             {
                 if(value.equals("all"))
                 {
-                    getCustomByType(recipes, allRecipes, CraftRecipe.class);
-                    getCustomByType(recipes, allRecipes, CombineRecipe.class);
-                    getCustomByType(recipes, allRecipes, SmeltRecipe.class);
-                    getCustomByType(recipes, allRecipes, FuelRecipe.class);
+                    getCustomByType(recipes, allRecipes, RecipeType.CRAFT);
+                    getCustomByType(recipes, allRecipes, RecipeType.COMBINE);
+                    getCustomByType(recipes, allRecipes, RecipeType.SMELT);
+                    getCustomByType(recipes, allRecipes, RecipeType.FUEL);
                 }
                 else if(value.startsWith("work") || value.startsWith("craft"))
                 {
-                    getCustomByType(recipes, allRecipes, CraftRecipe.class);
-                    getCustomByType(recipes, allRecipes, CombineRecipe.class);
+                    getCustomByType(recipes, allRecipes, RecipeType.CRAFT);
+                    getCustomByType(recipes, allRecipes, RecipeType.COMBINE);
                 }
                 else if(value.startsWith("smelt") || value.startsWith("furnace"))
                 {
-                    getCustomByType(recipes, allRecipes, SmeltRecipe.class);
+                    getCustomByType(recipes, allRecipes, RecipeType.SMELT);
                 }
                 else if(value.startsWith("fuel"))
                 {
-                    getCustomByType(recipes, allRecipes, FuelRecipe.class);
+                    getCustomByType(recipes, allRecipes, RecipeType.FUEL);
                 }
                 else
                 {
@@ -476,7 +477,7 @@ public class RecipeBooks
                 
                 int added = 0;
                 
-                for(Entry<BaseRecipe, RecipeInfo> e : RecipeManager.getRecipes().index.entrySet())
+                for(Entry<BaseRecipe, RecipeInfo> e : RecipeManager.getRecipes().getRecipeList().entrySet())
                 {
                     RecipeInfo info = e.getValue();
                     
@@ -502,7 +503,7 @@ public class RecipeBooks
                 value = value.replace('\\', '/');
                 int added = 0;
                 
-                for(Entry<BaseRecipe, RecipeInfo> e : RecipeManager.getRecipes().index.entrySet())
+                for(Entry<BaseRecipe, RecipeInfo> e : RecipeManager.getRecipes().getRecipeList().entrySet())
                 {
                     RecipeInfo info = e.getValue();
                     
@@ -576,22 +577,14 @@ public class RecipeBooks
         }
     }
     
-    private void getCustomByType(Collection<String> recipes, Set<String> allRecipes, Class<? extends BaseRecipe> cls)
+    private void getCustomByType(Collection<String> recipes, Set<String> allRecipes, RecipeType type)
     {
-        for(Entry<BaseRecipe, RecipeInfo> e : RecipeManager.getRecipes().index.entrySet())
+        for(BaseRecipe recipe : RecipeManager.getRecipes().getCustomRecipes(type))
         {
-            if(e.getValue().getOwner() == RecipeOwner.RECIPEMANAGER)
+            if(!allRecipes.contains(recipe.getName()))
             {
-                BaseRecipe recipe = e.getKey();
-                
-                if(cls == null || cls.isInstance(recipe))
-                {
-                    if(!allRecipes.contains(recipe.getName()))
-                    {
-                        recipes.add(recipe.getName());
-                        allRecipes.add(recipe.getName());
-                    }
-                }
+                recipes.add(recipe.getName());
+                allRecipes.add(recipe.getName());
             }
         }
     }
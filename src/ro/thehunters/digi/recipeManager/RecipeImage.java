@@ -0,0 +1,474 @@
+package ro.thehunters.digi.recipeManager;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bukkit.inventory.ItemStack;
+
+import ro.thehunters.digi.recipeManager.RecipeProcessor.CachedFile;
+import ro.thehunters.digi.recipeManager.flags.Flaggable;
+import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
+import ro.thehunters.digi.recipeManager.recipes.CombineRecipe;
+import ro.thehunters.digi.recipeManager.recipes.CraftRecipe;
+import ro.thehunters.digi.recipeManager.recipes.FuelRecipe;
+import ro.thehunters.digi.recipeManager.recipes.ItemResult;
+import ro.thehunters.digi.recipeManager.recipes.SmeltRecipe;
+
+/**
+ * Compiled binary image of the parsed recipe files, used to fill the parse cache on server start.<br>
+ * Only files that have plain recipes are stored: no flags and items without metadata.<br>
+ * Other files and files that changed since the image was written are parsed as usual.
+ */
+public class RecipeImage
+{
+    private static final int MAGIC = 0x524D5243; // "RMRC"
+    private static final int FORMAT = 2;
+    
+    private static final byte TYPE_CRAFT = 1;
+    private static final byte TYPE_COMBINE = 2;
+    private static final byte TYPE_SMELT = 3;
+    private static final byte TYPE_FUEL = 4;
+    
+    /**
+     * Reads the image into parse cache entries.<br>
+     * The file is read in one go instead of being memory-mapped because a mapped file stays locked on Windows until it's garbage collected, which would prevent writing the image again.
+     * 
+     * @param file
+     * @param version
+     *            plugin version, image is ignored if it was written by another version
+     * @param settingsHash
+     *            fingerprint of the settings files, image is ignored if they changed
+     * @return cache entries by file name or null if image doesn't exist or can't be used
+     */
+    protected static Map<String, CachedFile> load(File file, String version, long settingsHash)
+    {
+        if(!file.exists())
+        {
+            return null;
+        }
+        
+        try
+        {
+            byte[] data = new byte[(int)file.length()];
+            DataInputStream stream = new DataInputStream(new FileInputStream(file));
+            
+            try
+            {
+                stream.readFully(data);
+            }
+            finally
+            {
+                stream.close();
+            }
+            
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            
+            if(in.readInt() != MAGIC || in.readInt() != FORMAT || !in.readUTF().equals(version) || in.readLong() != settingsHash)
+            {
+                return null;
+            }
+            
+            int files = in.readInt();
+            Map<String, CachedFile> cache = new HashMap<String, CachedFile>(files * 2);
+            
+            for(int f = 0; f < files; f++)
+            {
+                String name = in.readUTF();
+                CachedFile cached = new CachedFile(in.readLong(), settingsHash);
+                int recipes = in.readInt();
+                
+                for(int r = 0; r < recipes; r++)
+                {
+                    long fingerprint = in.readLong();
+                    BaseRecipe recipe = readRecipe(in);
+                    
+                    if(recipe.hashCode() != in.readInt())
+                    {
+                        throw new IOException("Recipe read from image differs from the parsed one: " + recipe.getName());
+                    }
+                    
+                    cached.recipes.put(recipe, fingerprint);
+                }
+                
+                cache.put(name, cached);
+            }
+            
+            return cache;
+        }
+        catch(Throwable e)
+        {
+            Messages.info("<yellow>Compiled recipes file '" + file.getName() + "' could not be read, recipe files will be parsed.");
+            return null;
+        }
+    }
+    
+    /**
+     * Writes the files that only have plain recipes to the image.
+     * 
+     * @param file
+     * @param version
+     *            plugin version
+     * @param settingsHash
+     *            fingerprint of the settings files
+     * @param cache
+     *            parse cache entries by file name
+     * @return amount of files written
+     */
+    protected static int save(File file, String version, long settingsHash, Map<String, CachedFile> cache) throws IOException
+    {
+        List<Entry<String, CachedFile>> files = new ArrayList<Entry<String, CachedFile>>(cache.size());
+        
+        for(Entry<String, CachedFile> entry : cache.entrySet())
+        {
+            if(canWrite(entry.getValue()))
+            {
+                files.add(entry);
+            }
+        }
+        
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeUTF(version);
+            out.writeLong(settingsHash);
+            out.writeInt(files.size());
+            
+            for(Entry<String, CachedFile> entry : files)
+            {
+                CachedFile cached = entry.getValue();
+                
+                out.writeUTF(entry.getKey());
+                out.writeLong(cached.contentHash);
+                out.writeInt(cached.recipes.size());
+                
+                for(Entry<BaseRecipe, Long> e : cached.recipes.entrySet())
+                {
+                    out.writeLong(e.getValue());
+                    writeRecipe(out, e.getKey());
+                    out.writeInt(e.getKey().hashCode());
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        
+        if((file.exists() && !file.delete()) || !temp.renameTo(file))
+        {
+            throw new IOException("Couldn't replace " + file.getPath());
+        }
+        
+        return files.size();
+    }
+    
+    private static boolean canWrite(CachedFile cached)
+    {
+        for(BaseRecipe recipe : cached.recipes.keySet())
+        {
+            if(!isPlain(recipe))
+            {
+                return false;
+            }
+            
+            if(recipe instanceof CraftRecipe)
+            {
+                if(!arePlain(((CraftRecipe)recipe).getResults()))
+                {
+                    return false;
+                }
+            }
+            else if(recipe instanceof CombineRecipe)
+            {
+                if(!arePlain(((CombineRecipe)recipe).getResults()))
+                {
+                    return false;
+                }
+            }
+            else if(recipe instanceof SmeltRecipe)
+            {
+                SmeltRecipe r = (SmeltRecipe)recipe;
+                
+                if(r.getResult() == null || !isPlain(r.getResult()) || (r.hasFuel() && !isPlain(r.getFuel())))
+                {
+                    return false;
+                }
+            }
+            else if(!(recipe instanceof FuelRecipe))
+            {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private static boolean isPlain(Flaggable flaggable)
+    {
+        return (!flaggable.hasFlags() || flaggable.getFlags().isEmpty());
+    }
+    
+    private static boolean isPlain(ItemResult result)
+    {
+        return (isPlain((Flaggable)result) && !result.hasItemMeta());
+    }
+    
+    private static boolean arePlain(List<ItemResult> results)
+    {
+        for(ItemResult result : results)
+        {
+            if(!isPlain(result))
+            {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private static void writeRecipe(DataOutputStream out, BaseRecipe recipe) throws IOException
+    {
+        if(recipe instanceof CraftRecipe)
+        {
+            CraftRecipe r = (CraftRecipe)recipe;
+            ItemStack[] ingredients = r.getIngredients();
+            
+            out.writeByte(TYPE_CRAFT);
+            writeName(out, recipe);
+            out.writeBoolean(r.isMirrorShape());
+            
+            if(r.isMirrorShape())
+            {
+                ingredients = Tools.mirrorItemMatrix(ingredients); // store the shape before mirroring, reading mirrors it again
+            }
+            
+            for(ItemStack item : ingredients)
+            {
+                writeItem(out, item);
+            }
+            
+            writeResults(out, r.getResults());
+        }
+        else if(recipe instanceof CombineRecipe)
+        {
+            CombineRecipe r = (CombineRecipe)recipe;
+            List<ItemStack> ingredients = r.getIngredients();
+            
+            out.writeByte(TYPE_COMBINE);
+            writeName(out, recipe);
+            out.writeByte(ingredients.size());
+            
+            for(ItemStack item : ingredients)
+            {
+                writeItem(out, item);
+            }
+            
+            writeResults(out, r.getResults());
+        }
+        else if(recipe instanceof SmeltRecipe)
+        {
+            SmeltRecipe r = (SmeltRecipe)recipe;
+            
+            out.writeByte(TYPE_SMELT);
+            writeName(out, recipe);
+            writeItem(out, r.getIngredient());
+            out.writeFloat(r.getMinTime());
+            out.writeFloat(r.getMaxTime());
+            writeResult(out, r.getResult());
+            out.writeBoolean(r.hasFuel());
+            
+            if(r.hasFuel())
+            {
+                writeResult(out, r.getFuel());
+            }
+        }
+        else
+        {
+            FuelRecipe r = (FuelRecipe)recipe;
+            
+            out.writeByte(TYPE_FUEL);
+            writeName(out, recipe);
+            writeItem(out, r.getIngredient());
+            out.writeFloat(r.getMinTime());
+            out.writeFloat(r.getMaxTime());
+        }
+    }
+    
+    private static BaseRecipe readRecipe(DataInputStream in) throws IOException
+    {
+        byte type = in.readByte();
+        String name = (in.readBoolean() ? in.readUTF() : null);
+        BaseRecipe recipe;
+        
+        switch(type)
+        {
+            case TYPE_CRAFT:
+            {
+                CraftRecipe r = new CraftRecipe();
+                boolean mirror = in.readBoolean();
+                ItemStack[] ingredients = new ItemStack[9];
+                
+                for(int i = 0; i < 9; i++)
+                {
+                    ingredients[i] = readItem(in);
+                }
+                
+                r.setIngredients(ingredients);
+                r.setMirrorShape(mirror);
+                r.setResults(readResults(in));
+                recipe = r;
+                break;
+            }
+            
+            case TYPE_COMBINE:
+            {
+                CombineRecipe r = new CombineRecipe();
+                int num = in.readByte();
+                List<ItemStack> ingredients = new ArrayList<ItemStack>(num);
+                
+                for(int i = 0; i < num; i++)
+                {
+                    ingredients.add(readItem(in));
+                }
+                
+                r.setIngredients(ingredients);
+                r.setResults(readResults(in));
+                recipe = r;
+                break;
+            }
+            
+            case TYPE_SMELT:
+            {
+                SmeltRecipe r = new SmeltRecipe();
+                
+                r.setIngredient(readItem(in));
+                r.setMinTime(in.readFloat());
+                r.setMaxTime(in.readFloat());
+                r.setResult(readResult(in));
+                
+                if(in.readBoolean())
+                {
+                    r.setFuel(readResult(in));
+                }
+                
+                recipe = r;
+                break;
+            }
+            
+            case TYPE_FUEL:
+            {
+                ItemStack ingredient = readItem(in);
+                float minTime = in.readFloat();
+                float maxTime = in.readFloat();
+                
+                recipe = new FuelRecipe(ingredient.getType(), ingredient.getDurability(), minTime, maxTime);
+                break;
+            }
+            
+            default:
+            {
+                throw new IOException("Unknown recipe type: " + type);
+            }
+        }
+        
+        if(name != null)
+        {
+            recipe.setName(name);
+        }
+        
+        return recipe;
+    }
+    
+    private static void writeName(DataOutputStream out, BaseRecipe recipe) throws IOException
+    {
+        out.writeBoolean(recipe.hasCustomName());
+        
+        if(recipe.hasCustomName())
+        {
+            out.writeUTF(recipe.getName());
+        }
+    }
+    
+    private static void writeItem(DataOutputStream out, ItemStack item) throws IOException
+    {
+        if(item == null)
+        {
+            out.writeShort(0);
+            return;
+        }
+        
+        out.writeShort(item.getTypeId());
+        out.writeShort(item.getDurability());
+        out.writeShort(item.getAmount());
+    }
+    
+    private static ItemStack readItem(DataInputStream in) throws IOException
+    {
+        int type = in.readShort();
+        
+        if(type == 0)
+        {
+            return null;
+        }
+        
+        short data = in.readShort();
+        int amount = in.readShort();
+        
+        return new ItemStack(type, amount, data);
+    }
+    
+    private static void writeResult(DataOutputStream out, ItemResult result) throws IOException
+    {
+        out.writeShort(result.getTypeId());
+        out.writeShort(result.getDurability());
+        out.writeShort(result.getAmount());
+        out.writeFloat(result.getChance());
+    }
+    
+    private static ItemResult readResult(DataInputStream in) throws IOException
+    {
+        int type = in.readShort();
+        short data = in.readShort();
+        int amount = in.readShort();
+        
+        return new ItemResult(new ItemStack(type, amount, data), in.readFloat());
+    }
+    
+    private static void writeResults(DataOutputStream out, List<ItemResult> results) throws IOException
+    {
+        out.writeByte(results.size());
+        
+        for(ItemResult result : results)
+        {
+            writeResult(out, result);
+        }
+    }
+    
+    private static List<ItemResult> readResults(DataInputStream in) throws IOException
+    {
+        int num = in.readByte();
+        List<ItemResult> results = new ArrayList<ItemResult>(num);
+        
+        for(int i = 0; i < num; i++)
+        {
+            results.add(readResult(in));
+        }
+        
+        return results;
+    }
+}
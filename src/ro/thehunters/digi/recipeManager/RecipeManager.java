@@ -76,6 +76,7 @@ public class RecipeManager extends JavaPlugin
         
         FurnaceData.init(); // dummy caller
         Furnaces.load(); // load saved furnaces...
+        Cooldowns.load(); // load saved cooldowns...
         
         events = new Events();
         recipes = new Recipes();
@@ -92,6 +93,8 @@ public class RecipeManager extends JavaPlugin
         RecipeBooks.init();
         FurnaceWorker.init();
         UpdateChecker.init();
+        FileWatcher.init();
+        Cooldowns.init();
         Files.init();
         Players.init();
         Workbenches.init();
@@ -100,6 +103,7 @@ public class RecipeManager extends JavaPlugin
         reload(null, false); // load data
         
         FurnaceWorker.start(); // keep furnace worker running at all times because it has alot of jobs
+        Cooldowns.start(); // removes expired cooldowns and saves them periodically
         
         getServer().getPluginManager().callEvent(new RecipeManagerEnabledEvent()); // Call the enabled event to notify other plugins that use this plugin's API
         
@@ -146,6 +150,8 @@ public class RecipeManager extends JavaPlugin
             new UpdateChecker(sender);
         }
         
+        FileWatcher.start(); // (re)start or stop watching recipe and book files
+        
         if(metrics == null)
         {
             if(settings.METRICS) // start/stop metrics accordingly
@@ -169,7 +175,7 @@ public class RecipeManager extends JavaPlugin
             else
             {
                 Vanilla.restoreInitialRecipes();
-                Recipes.getInstance().index.putAll(Vanilla.initialRecipes);
+                Recipes.getInstance().indexInitialRecipes(Vanilla.initialRecipes);
                 
                 Messages.sendAndLog(sender, "<green>Previous recipes restored! <gray>(due to clear-recipes set from true to false)");
             }
@@ -236,6 +242,7 @@ public class RecipeManager extends JavaPlugin
         try
         {
             Bukkit.getScheduler().cancelTasks(this);
+            RecipeRegistrator.clean(); // unfinished registration, its recipes are removed below
             
             if(plugin == null)
             {
@@ -247,11 +254,15 @@ public class RecipeManager extends JavaPlugin
             Furnaces.save();
             Furnaces.clean();
             
+            Cooldowns.save();
+            Cooldowns.clean();
+            
             FurnaceWorker.clean();
             Workbenches.clean();
             Players.clean();
             Vanilla.clean();
             UpdateChecker.clean();
+            FileWatcher.clean();
             
             economy.clear();
             economy = null;
@@ -1,13 +1,24 @@
 package ro.thehunters.digi.recipeManager;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -27,9 +38,11 @@ import ro.thehunters.digi.recipeManager.recipes.CombineRecipe;
 import ro.thehunters.digi.recipeManager.recipes.CraftRecipe;
 import ro.thehunters.digi.recipeManager.recipes.FuelRecipe;
 import ro.thehunters.digi.recipeManager.recipes.ItemResult;
+import ro.thehunters.digi.recipeManager.recipes.MultiResultRecipe;
 import ro.thehunters.digi.recipeManager.recipes.RecipeInfo;
 import ro.thehunters.digi.recipeManager.recipes.RecipeInfo.RecipeOwner;
 import ro.thehunters.digi.recipeManager.recipes.RemoveResultRecipe;
+import ro.thehunters.digi.recipeManager.recipes.SingleResultRecipe;
 import ro.thehunters.digi.recipeManager.recipes.SmeltRecipe;
 
 /**
@@ -50,6 +63,24 @@ public class RecipeProcessor implements Runnable
     private int loaded;
     private String recipeName;
     
+    // Lines of the current recipe and file header flags, for recipe fingerprints
+    private final StringBuilder source = new StringBuilder();
+    private int sourceLineStart;
+    private String fileSource;
+    
+    // Parse cache, files that had no errors keep their recipes and are only parsed again if they or the settings files change
+    private static volatile Map<String, CachedFile> cache = new HashMap<String, CachedFile>(); // only replaced by a run that wasn't superseded
+    private final Map<String, CachedFile> newCache = new HashMap<String, CachedFile>();
+    private CachedFile parsing;
+    private long settingsHash;
+    private int cacheHits;
+    
+    // Per-file parse task results
+    private String fileName;
+    private CachedFile cached;
+    private final Map<BaseRecipe, Integer> recipeLines = new HashMap<BaseRecipe, Integer>();
+    private Map<String, List<String>> errors;
+    
     // Storage
     private volatile RecipeRegistrator registrator = null;
     private final List<String> fileList = new ArrayList<String>();
@@ -58,30 +89,70 @@ public class RecipeProcessor implements Runnable
     private final String DIR_PLUGIN = RecipeManager.getPlugin().getDataFolder() + File.separator;
     private final String DIR_RECIPES = DIR_PLUGIN + "recipes" + File.separator;
     private final String FILE_ERRORLOG = DIR_RECIPES + "errors.log";
-    private final String[] COMMENTS =
-    {
-        "//",
-        "#"
-    };
     
     private static BukkitTask task;
+    private static volatile RecipeProcessor running; // latest started reload, null when it's done parsing
+    private static final Object runLock = new Object(); // reloads run one at a time because they share the cache and the error reporter
+    private volatile boolean superseded; // a newer reload started, this one stops without changing anything
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L; // FNV-1a hashing for fingerprints
+    
+    protected static class CachedFile
+    {
+        protected final long contentHash;
+        protected final long settingsHash;
+        protected final Map<BaseRecipe, Long> recipes = new LinkedHashMap<BaseRecipe, Long>(); // recipes and their fingerprints
+        
+        protected CachedFile(long contentHash, long settingsHash)
+        {
+            this.contentHash = contentHash;
+            this.settingsHash = settingsHash;
+        }
+    }
     
     protected static void reload(CommandSender sender, boolean check)
     {
         new RecipeProcessor(sender, check);
     }
     
+    /**
+     * @return true if a reload or check is parsing the recipe files
+     */
+    protected static boolean isRunning()
+    {
+        return (running != null);
+    }
+    
+    /**
+     * Creates a parse task for a single file, it has its own parse state, queue and errors.
+     */
+    private RecipeProcessor(RecipeProcessor processor, String fileName)
+    {
+        this.sender = processor.sender;
+        this.check = processor.check;
+        this.settingsHash = processor.settingsHash;
+        this.fileName = fileName;
+        this.registrator = new RecipeRegistrator();
+    }
+    
     private RecipeProcessor(CommandSender sender, boolean check)
     {
         this.sender = sender;
         this.check = check;
         
-        if(task != null)
+        RecipeProcessor previous = running;
+        
+        // A reload replaces the running one, a check waits for it to finish
+        if(previous != null && !check)
         {
-            task.cancel();
+            previous.superseded = true;
+            
+            if(task != null)
+            {
+                task.cancel(); // only stops it if it didn't start yet
+            }
         }
         
-        ErrorReporter.startCatching();
+        running = this;
         
         if(RecipeManager.getSettings().MULTITHREADING)
         {
@@ -95,9 +166,22 @@ public class RecipeProcessor implements Runnable
     
     @Override
     public void run()
+    {
+        synchronized(runLock)
+        {
+            if(!superseded) // a newer reload started while this one was waiting
+            {
+                process();
+            }
+        }
+    }
+    
+    private void process()
     {
         final long start = System.currentTimeMillis();
         
+        ErrorReporter.startCatching();
+        
         try
         {
             Messages.sendAndLog(sender, (check ? "Checking" : "Loading") + " " + "all recipes...");
@@ -112,49 +196,63 @@ public class RecipeProcessor implements Runnable
             // Scan for files
             analyzeDirectory(dir);
             
+            settingsHash = fingerprint(fingerprint(fingerprint(FNV_OFFSET, readFile(new File(DIR_PLUGIN + Files.FILE_CONFIG))), readFile(new File(DIR_PLUGIN + Files.FILE_ITEM_ALIASES))), readFile(new File(DIR_PLUGIN + Files.FILE_ENCHANT_ALIASES)));
+            
+            String version = RecipeManager.getPlugin().getDescription().getVersion();
+            File image = new File(DIR_PLUGIN + Files.FILE_COMPILED_RECIPES);
+            
+            if(cache.isEmpty()) // first load, fill the cache from the compiled recipes
+            {
+                Map<String, CachedFile> compiled = RecipeImage.load(image, version, settingsHash);
+                
+                if(compiled != null)
+                {
+                    cache = compiled;
+                }
+            }
+            
             if(!fileList.isEmpty())
             {
                 registrator = new RecipeRegistrator();
                 
-                long lastDisplay = System.currentTimeMillis();
-                long time;
-                int numFiles = fileList.size();
-                int parsedFiles = 0;
                 loaded = 0;
                 
-                // Start reading files...
-                for(String name : fileList)
+                parseFiles();
+                
+                if(superseded)
+                {
+                    ErrorReporter.stopCatching();
+                    Messages.sendAndLog(sender, "<gray>Recipe " + (check ? "check" : "loading") + " stopped, a newer reload was started.");
+                    return;
+                }
+                
+                boolean changed = (cacheHits != fileList.size() || cache.size() != newCache.size());
+                cache = newCache; // also drops deleted files
+                
+                if(changed)
                 {
                     try
                     {
-                        parseFile(DIR_RECIPES, name);
-                        parsedFiles++;
-                        time = System.currentTimeMillis();
-                        
-                        // display progress each second
-                        if(time > lastDisplay + 500)
-                        {
-                            Messages.sendAndLog(sender, "Recipes processed " + ((parsedFiles * 100) / numFiles) + "%...");
-                            lastDisplay = time;
-                        }
+                        RecipeImage.save(image, version, settingsHash, newCache);
                     }
                     catch(Throwable e)
                     {
-                        Messages.error(sender, e, "Error while reading recipe files!");
+                        Messages.error(sender, e, "Couldn't write compiled recipes file!");
                     }
                 }
                 
                 int errors = ErrorReporter.getCatchedAmount();
+                String cached = (cacheHits > 0 ? " (" + cacheHits + " unchanged files from cache)" : "");
                 
                 if(errors > 0)
                 {
-                    Messages.sendAndLog(sender, ChatColor.YELLOW + (check ? "Checked" : "Parsed") + " " + loaded + " recipes from " + fileList.size() + " files in " + (System.currentTimeMillis() - start) / 1000.0 + " seconds, " + errors + " errors were found" + (sender == null ? ", see below:" : ", see console."));
+                    Messages.sendAndLog(sender, ChatColor.YELLOW + (check ? "Checked" : "Parsed") + " " + loaded + " recipes from " + fileList.size() + " files" + cached + " in " + (System.currentTimeMillis() - start) / 1000.0 + " seconds, " + errors + " errors were found" + (sender == null ? ", see below:" : ", see console."));
                     
                     ErrorReporter.print(FILE_ERRORLOG);
                 }
                 else
                 {
-                    Messages.sendAndLog(sender, (check ? "Checked" : "Parsed") + " " + loaded + " recipes from " + fileList.size() + " files without errors, elapsed time " + (System.currentTimeMillis() - start) / 1000.0 + " seconds.");
+                    Messages.sendAndLog(sender, (check ? "Checked" : "Parsed") + " " + loaded + " recipes from " + fileList.size() + " files" + cached + " without errors, elapsed time " + (System.currentTimeMillis() - start) / 1000.0 + " seconds.");
                     
                     File log = new File(FILE_ERRORLOG);
                     
@@ -168,6 +266,7 @@ public class RecipeProcessor implements Runnable
             }
             else
             {
+                ErrorReporter.stopCatching();
                 Messages.sendAndLog(sender, "<yellow>No recipe files exist in the recipes folder.");
             }
         }
@@ -177,9 +276,13 @@ public class RecipeProcessor implements Runnable
         }
         finally
         {
-            task = null;
+            if(running == this)
+            {
+                task = null;
+                running = null;
+            }
             
-            if(check || registrator == null)
+            if(check || registrator == null || superseded)
             {
                 return;
             }
@@ -187,12 +290,17 @@ public class RecipeProcessor implements Runnable
             // Calling registerRecipesToServer() in main thread...
             if(RecipeManager.getSettings().MULTITHREADING)
             {
+                registrator.prepareSnapshot(); // build indexes in this thread, only server changes are left for the main thread
+                
                 new BukkitRunnable()
                 {
                     @Override
                     public void run()
                     {
-                        registrator.registerRecipesToServer(sender, start);
+                        if(!superseded)
+                        {
+                            registrator.registerRecipesToServer(sender, start);
+                        }
                     }
                 }.runTask(RecipeManager.getPlugin());
             }
@@ -230,21 +338,204 @@ public class RecipeProcessor implements Runnable
         }
     }
     
-    private void parseFile(String root, String fileName) throws Throwable
+    /**
+     * Parses all files, in parallel if multithreading is enabled, then adds their recipes to the registrator in file order.
+     */
+    private void parseFiles() throws InterruptedException
     {
-        reader = new BufferedReader(new InputStreamReader(new DataInputStream(new FileInputStream(root + fileName))));
+        List<Callable<RecipeProcessor>> tasks = new ArrayList<Callable<RecipeProcessor>>(fileList.size());
+        
+        for(String name : fileList)
+        {
+            final RecipeProcessor parser = new RecipeProcessor(this, name);
+            
+            tasks.add(new Callable<RecipeProcessor>()
+            {
+                @Override
+                public RecipeProcessor call()
+                {
+                    parser.parseTask(true);
+                    return parser;
+                }
+            });
+        }
+        
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), tasks.size());
+        ExecutorService executor = null;
+        List<Future<RecipeProcessor>> results = new ArrayList<Future<RecipeProcessor>>(tasks.size());
+        
+        if(RecipeManager.getSettings().MULTITHREADING && threads > 1)
+        {
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "RecipeManager recipe parser");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            
+            for(Callable<RecipeProcessor> t : tasks)
+            {
+                results.add(executor.submit(t));
+            }
+        }
+        
+        try
+        {
+            long lastDisplay = System.currentTimeMillis();
+            long time;
+            int numFiles = tasks.size();
+            
+            for(int i = 0; i < numFiles && !superseded; i++)
+            {
+                try
+                {
+                    RecipeProcessor parser = (executor == null ? tasks.get(i).call() : results.get(i).get());
+                    
+                    mergeParsed(parser);
+                    
+                    time = System.currentTimeMillis();
+                    
+                    // display progress each second
+                    if(time > lastDisplay + 500)
+                    {
+                        Messages.sendAndLog(sender, "Recipes processed " + (((i + 1) * 100) / numFiles) + "%...");
+                        lastDisplay = time;
+                    }
+                }
+                catch(InterruptedException e)
+                {
+                    throw e;
+                }
+                catch(Throwable e)
+                {
+                    Messages.error(sender, (e instanceof ExecutionException ? e.getCause() : e), "Error while reading recipe files!");
+                }
+            }
+        }
+        finally
+        {
+            if(executor != null)
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+    
+    /**
+     * Parses this task's file, or only checks if it can be loaded from the cache.<br>
+     * Errors are caught separately from other files to be added in file order.
+     * 
+     * @param useCache
+     *            false to parse the file even if it's unchanged
+     */
+    private void parseTask(boolean useCache)
+    {
+        ErrorReporter.startLocalCatching();
+        
+        try
+        {
+            parseFile(DIR_RECIPES, fileName, useCache);
+        }
+        catch(Throwable e)
+        {
+            parsing = null; // incomplete, don't cache
+            Messages.error(sender, e, "Error while reading recipe files!");
+        }
+        finally
+        {
+            errors = ErrorReporter.stopLocalCatching();
+        }
+    }
+    
+    /**
+     * Adds the recipes and errors of a parsed file in the registrator and error reporter.<br>
+     * Checks for recipes that were already added by previous files since files are parsed independently.
+     */
+    private void mergeParsed(RecipeProcessor parser)
+    {
+        currentFile = parser.currentFile;
+        
+        if(parser.cached != null)
+        {
+            if(queueCached(parser.cached))
+            {
+                newCache.put(parser.fileName, parser.cached);
+                cacheHits++;
+                return;
+            }
+            
+            parser.parseTask(false); // recipes clash with other files' recipes, parse again to get the errors
+        }
+        
+        ErrorReporter.addErrors(parser.errors);
+        ErrorReporter.setFile(currentFile);
+        boolean clean = parser.errors.isEmpty();
+        
+        for(Entry<BaseRecipe, RecipeInfo> entry : parser.registrator.queuedRecipes.entrySet())
+        {
+            BaseRecipe recipe = entry.getKey();
+            RecipeInfo queued = getRecipeFromMap(recipe, registrator.queuedRecipes);
+            
+            if(queued != null)
+            {
+                ErrorReporter.setLine(parser.recipeLines.get(recipe));
+                ErrorReporter.error("Recipe already created with this plugin, file: " + queued.getAdder());
+                ErrorReporter.error("Recipe was not added! Review previous errors and fix them.", "Warnings do not prevent recipe creation but they should be fixed as well!");
+                clean = false;
+                continue;
+            }
+            
+            registrator.queuedRecipes.put(recipe, entry.getValue());
+            loaded++;
+        }
+        
+        if(clean && parser.parsing != null) // only cache files without errors so their errors get reported again
+        {
+            newCache.put(parser.fileName, parser.parsing);
+        }
+    }
+    
+    private void parseFile(String root, String fileName, boolean useCache) throws Throwable
+    {
+        byte[] data = readFile(new File(root + fileName));
+        long contentHash = fingerprint(FNV_OFFSET, data);
+        CachedFile entry = cache.get(fileName);
         currentFile = Tools.removeExtensions(fileName, Files.FILE_RECIPE_EXTENSIONS);
+        parsing = null;
+        cached = null;
+        
+        if(useCache && entry != null && entry.contentHash == contentHash && entry.settingsHash == settingsHash)
+        {
+            cached = entry; // checked against other files' recipes when merging
+            return;
+        }
+        
+        parsing = new CachedFile(contentHash, settingsHash);
+        registrator.queuedRecipes.clear();
+        recipeLines.clear();
+        line = null;
+        
+        reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data)));
         lineNum = 0;
         ErrorReporter.setFile(currentFile);
         fileFlags = new Flags();
         commentBlock = false;
         boolean added = false;
+        source.setLength(0);
         
         parseFlags(fileFlags); // parse file header flags that applies to all recipes
         
+        fileSource = source.substring(0, (line == null ? source.length() : sourceLineStart));
+        
         while(searchRecipes()) // search for recipes...
         {
             directiveLine = lineNum;
+            source.setLength(0);
+            source.append(fileSource).append(line).append('\n');
             String directive = line.toLowerCase();
             recipeName = null;
             int i = directive.indexOf(' ');
@@ -294,6 +585,67 @@ public class RecipeProcessor implements Runnable
         reader.close();
     }
     
+    /**
+     * Queues the recipes of an unchanged file.<br>
+     * Files that would now get errors or warnings from {@link #recipeExists(BaseRecipe)} because of other recipes are not queued and need to be parsed again.
+     * 
+     * @return true if the recipes were queued
+     */
+    private boolean queueCached(CachedFile cached)
+    {
+        for(BaseRecipe recipe : cached.recipes.keySet())
+        {
+            RecipeInfo registered = getRecipeFromMap(recipe, RecipeManager.getRecipes().getRecipeList());
+            
+            if(recipe.hasFlag(FlagType.OVERRIDE) || recipe.hasFlag(FlagType.REMOVE))
+            {
+                if(registered == null || (registered.getOwner() == RecipeOwner.RECIPEMANAGER && registered.getStatus() == null))
+                {
+                    return false;
+                }
+            }
+            else if(registered != null && (registered.getOwner() != RecipeOwner.RECIPEMANAGER || !currentFile.equals(registered.getAdder())))
+            {
+                return false;
+            }
+            
+            if(getRecipeFromMap(recipe, registrator.queuedRecipes) != null)
+            {
+                return false;
+            }
+        }
+        
+        for(Entry<BaseRecipe, Long> entry : cached.recipes.entrySet())
+        {
+            registrator.queueRecipe(entry.getKey(), currentFile);
+            registrator.queuedRecipes.get(entry.getKey()).setFingerprint(entry.getValue());
+            loaded++;
+        }
+        
+        return true;
+    }
+    
+    private static byte[] readFile(File file) throws IOException
+    {
+        if(!file.exists())
+        {
+            return new byte[0];
+        }
+        
+        DataInputStream stream = new DataInputStream(new FileInputStream(file));
+        
+        try
+        {
+            byte[] data = new byte[(int)file.length()];
+            stream.readFully(data);
+            return data;
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+    
     private boolean searchRecipes()
     {
         if(line != null && lineIsRecipe())
@@ -308,7 +660,9 @@ public class RecipeProcessor implements Runnable
     {
         for(RecipeType type : RecipeType.values())
         {
-            if(type.getDirective() != null && line.toLowerCase().startsWith(type.getDirective()))
+            String directive = type.getDirective();
+            
+            if(directive != null && line.regionMatches(true, 0, directive, 0, directive.length()))
             {
                 return true;
             }
@@ -347,6 +701,9 @@ public class RecipeProcessor implements Runnable
         }
         while(line == null);
         
+        sourceLineStart = source.length();
+        source.append(line).append('\n');
+        
         return true;
     }
     
@@ -375,7 +732,38 @@ public class RecipeProcessor implements Runnable
             return null;
         }
         
-        index = line.indexOf("/*"); // check for comment block start
+        // find comment block start and in-line comments in one pass
+        int length = line.length();
+        int lineComment = -1;
+        int hashComment = -1;
+        index = -1;
+        
+        for(int i = 0; i < length; i++)
+        {
+            char c = line.charAt(i);
+            
+            if(c == '#')
+            {
+                if(hashComment < 0)
+                {
+                    hashComment = i;
+                }
+            }
+            else if(c == '/' && i + 1 < length)
+            {
+                char next = line.charAt(i + 1);
+                
+                if(next == '*')
+                {
+                    index = i;
+                    break; // comment block takes priority
+                }
+                else if(next == '/' && lineComment < 0)
+                {
+                    lineComment = i;
+                }
+            }
+        }
         
         if(index >= 0)
         {
@@ -390,20 +778,17 @@ public class RecipeProcessor implements Runnable
             return (index == 0 ? null : line.substring(0, index).trim());
         }
         
-        // now check for in-line comments
-        for(String comment : COMMENTS)
+        // now check for in-line comments, '//' before '#'
+        index = (lineComment >= 0 ? lineComment : hashComment);
+        
+        if(index == 0)
         {
-            index = line.indexOf(comment);
-            
-            if(index == 0)
-            {
-                return null;
-            }
-            
-            if(index > -1)
-            {
-                return line.substring(0, index).trim(); // partial comment, return filtered data
-            }
+            return null;
+        }
+        
+        if(index > 0)
+        {
+            return line.substring(0, index).trim(); // partial comment, return filtered data
         }
         
         return line;
@@ -456,7 +841,7 @@ public class RecipeProcessor implements Runnable
                 break;
             }
             
-            split = line.split("\\+"); // split ingredients by the + sign
+            split = Tools.split(line, '+'); // split ingredients by the + sign
             int rowLen = split.length;
             
             if(rowLen > 3) // if we find more than 3 ingredients warn the user and limit it to 3
@@ -532,6 +917,7 @@ public class RecipeProcessor implements Runnable
         
         // add the recipe to the Recipes class and to the list for later adding to the server
         registrator.queueCraftRecipe(recipe, currentFile);
+        recipeQueued(recipe);
         loaded++;
         
         return true; // succesfully added
@@ -543,7 +929,7 @@ public class RecipeProcessor implements Runnable
         parseFlags(recipe.getFlags()); // parse recipe's flags
         
         // get the ingredients
-        String[] ingredientsRaw = line.split("\\+");
+        String[] ingredientsRaw = Tools.split(line, '+');
         
         List<ItemStack> ingredients = new ArrayList<ItemStack>();
         ItemStack item;
@@ -602,6 +988,7 @@ public class RecipeProcessor implements Runnable
         
         // add the recipe to the Recipes class and to the list for later adding to the server
         registrator.queueCombineRecipe(recipe, currentFile);
+        recipeQueued(recipe);
         loaded++;
         
         return true; // no errors encountered
@@ -636,7 +1023,7 @@ public class RecipeProcessor implements Runnable
         parseFlags(recipe.getFlags()); // check for @flags
         
         // get the ingredient and smelting time
-        String[] split = line.split("%");
+        String[] split = Tools.split(line, '%');
         
         if(split.length == 0)
         {
@@ -667,7 +1054,7 @@ public class RecipeProcessor implements Runnable
             
             if(split.length >= 2)
             {
-                String[] timeSplit = split[1].trim().toLowerCase().split("-");
+                String[] timeSplit = Tools.split(split[1].trim().toLowerCase(), '-');
                 
                 if(!timeSplit[0].equals("instant"))
                 {
@@ -760,6 +1147,7 @@ public class RecipeProcessor implements Runnable
         
         // add the recipe to the Recipes class and to the list for later adding to the server
         registrator.queueSmeltRecipe(recipe, currentFile);
+        recipeQueued(recipe);
         loaded++;
         
         return true;
@@ -780,7 +1168,7 @@ public class RecipeProcessor implements Runnable
             
             recipe = new FuelRecipe(recipe);
             
-            String[] split = line.split("%");
+            String[] split = Tools.split(line, '%');
             
             if(!recipe.hasFlag(FlagType.REMOVE)) // if it's got @remove we don't care about burn time
             {
@@ -791,7 +1179,7 @@ public class RecipeProcessor implements Runnable
                 }
                 
                 // set the burn time
-                String[] timeSplit = split[1].trim().split("-");
+                String[] timeSplit = Tools.split(split[1].trim(), '-');
                 float minTime = -1;
                 float maxTime = -1;
                 
@@ -854,6 +1242,7 @@ public class RecipeProcessor implements Runnable
             }
             
             registrator.queuFuelRecipe(recipe, currentFile);
+            recipeQueued(recipe);
             loaded++;
             added++;
         }
@@ -1021,7 +1410,7 @@ public class RecipeProcessor implements Runnable
     private boolean recipeExists(BaseRecipe recipe)
     {
         ErrorReporter.setLine(directiveLine); // set the line to point to the directive rather than the last read line!
-        RecipeInfo registered = getRecipeFromMap(recipe, RecipeManager.getRecipes().index);
+        RecipeInfo registered = getRecipeFromMap(recipe, RecipeManager.getRecipes().getRecipeList());
         
         if(recipe.hasFlag(FlagType.OVERRIDE) || recipe.hasFlag(FlagType.REMOVE))
         {
@@ -1077,16 +1466,78 @@ public class RecipeProcessor implements Runnable
         return true; // nothing found, let it be added
     }
     
+    /**
+     * Remembers the directive line of a just queued recipe and sets its content fingerprint, made from its file name, the file's flags, the recipe's lines and its parsed results.
+     */
+    private void recipeQueued(BaseRecipe recipe)
+    {
+        recipeLines.put(recipe, directiveLine);
+        
+        int end = (line != null && lineIsRecipe() ? sourceLineStart : source.length()); // leave out the next recipe's directive
+        long hash = FNV_OFFSET;
+        
+        hash = fingerprint(hash, currentFile);
+        hash = fingerprint(hash, source.substring(0, end));
+        
+        if(recipe instanceof MultiResultRecipe)
+        {
+            for(ItemResult result : ((MultiResultRecipe)recipe).getResults())
+            {
+                hash = fingerprint(hash, result.hashCode()); // item aliases might've changed
+            }
+        }
+        else if(recipe instanceof SingleResultRecipe && ((SingleResultRecipe)recipe).getResult() != null)
+        {
+            hash = fingerprint(hash, ((SingleResultRecipe)recipe).getResult().hashCode());
+        }
+        
+        hash = (hash == 0 ? 1 : hash); // 0 means no fingerprint
+        
+        registrator.queuedRecipes.get(recipe).setFingerprint(hash);
+        
+        if(parsing != null)
+        {
+            parsing.recipes.put(recipe, hash);
+        }
+    }
+    
+    private static long fingerprint(long hash, byte[] data)
+    {
+        for(byte b : data)
+        {
+            hash = fingerprint(hash, b);
+        }
+        
+        return hash;
+    }
+    
+    private static long fingerprint(long hash, String string)
+    {
+        for(int i = 0; i < string.length(); i++)
+        {
+            hash = fingerprint(hash, string.charAt(i));
+        }
+        
+        return fingerprint(hash, 0);
+    }
+    
+    private static long fingerprint(long hash, int value)
+    {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+    
     private RecipeInfo getRecipeFromMap(BaseRecipe recipe, Map<BaseRecipe, RecipeInfo> map)
     {
         RecipeInfo info = map.get(recipe);
         
         if(info == null && recipe instanceof CraftRecipe)
         {
-            CraftRecipe cr = (CraftRecipe)recipe;
-            cr.setMirrorShape(true);
+            // look up the mirrored shape with a copy, the recipe may be cached or registered and its hash is a map key
+            CraftRecipe mirrored = new CraftRecipe();
+            mirrored.setIngredients(((CraftRecipe)recipe).getIngredients());
+            mirrored.setMirrorShape(true);
             
-            info = map.get(recipe);
+            info = map.get(mirrored);
         }
         
         return info;
@@ -1,13 +1,20 @@
 package ro.thehunters.digi.recipeManager;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.scheduler.BukkitRunnable;
 
+import ro.thehunters.digi.recipeManager.flags.FlagType;
 import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
 import ro.thehunters.digi.recipeManager.recipes.CombineRecipe;
 import ro.thehunters.digi.recipeManager.recipes.CraftRecipe;
@@ -18,9 +25,21 @@ import ro.thehunters.digi.recipeManager.recipes.SmeltRecipe;
 
 public class RecipeRegistrator
 {
-    protected Map<BaseRecipe, RecipeInfo> queuedRecipes = new HashMap<BaseRecipe, RecipeInfo>();
+    protected Map<BaseRecipe, RecipeInfo> queuedRecipes = new LinkedHashMap<BaseRecipe, RecipeInfo>(); // in file order
     private boolean registered = false;
     
+    // Unpublished indexes and the recipes that need to be removed from server when publishing them
+    private RecipeSnapshot base;
+    private RecipeSnapshot snapshot;
+    private final List<BaseRecipe> removedRecipes = new ArrayList<BaseRecipe>();
+    private final Set<BaseRecipe> replacedRecipes = new HashSet<BaseRecipe>();
+    private final List<BaseRecipe> changedRecipes = new ArrayList<BaseRecipe>();
+    
+    private Progress progress = DEFAULT_PROGRESS;
+    
+    // Registration that is adding recipes over multiple ticks
+    private static RegisterTask pending;
+    
     protected RecipeRegistrator()
     {
     }
@@ -113,6 +132,73 @@ public class RecipeRegistrator
         queuedRecipes.put(recipe, new RecipeInfo(RecipeOwner.RECIPEMANAGER, adder));
     }
     
+    /**
+     * Builds the new recipe indexes from the current ones and the queued recipes without publishing them.<br>
+     * Recipes that have the same content fingerprint as the already registered ones are left as they are.<br>
+     * Does not touch the server so it can be called from another thread.
+     */
+    protected void prepareSnapshot()
+    {
+        RecipeSnapshot current = RecipeManager.getRecipes().snapshot;
+        RecipeSnapshot next = new RecipeSnapshot(current);
+        Set<BaseRecipe> unchanged = new HashSet<BaseRecipe>();
+        
+        removedRecipes.clear();
+        replacedRecipes.clear();
+        changedRecipes.clear();
+        
+        // Remove old custom recipes unless they're queued again without changes
+        for(Entry<BaseRecipe, RecipeInfo> entry : current.index.entrySet())
+        {
+            if(entry.getValue().getOwner() == RecipeOwner.RECIPEMANAGER)
+            {
+                RecipeInfo queued = queuedRecipes.get(entry.getKey());
+                long fingerprint = entry.getValue().getFingerprint();
+                
+                if(queued != null && fingerprint != 0 && fingerprint == queued.getFingerprint())
+                {
+                    unchanged.add(entry.getKey());
+                    continue;
+                }
+                
+                removedRecipes.add(entry.getKey());
+                next.remove(entry.getKey());
+            }
+        }
+        
+        // Add queued recipes, remembering the ones that replace existing recipes
+        for(Entry<BaseRecipe, RecipeInfo> entry : queuedRecipes.entrySet())
+        {
+            BaseRecipe recipe = entry.getKey();
+            
+            if(unchanged.contains(recipe))
+            {
+                continue;
+            }
+            
+            if(next.remove(recipe) != null)
+            {
+                replacedRecipes.add(recipe);
+            }
+            
+            next.put(recipe, entry.getValue());
+            changedRecipes.add(recipe);
+        }
+        
+        base = current;
+        snapshot = next;
+    }
+    
+    /**
+     * Removes the old recipes from the server, adds the queued recipes and then publishes the new indexes.<br>
+     * If 'registration-tick-budget' is set the queued recipes are added in batches over multiple ticks and the previous indexes stay published until the last batch, new recipes can't be crafted until then.<br>
+     * Must be called in the main thread.
+     * 
+     * @param sender
+     *            who to send progress messages to, null for console
+     * @param start
+     *            time when the reload started, for the final message
+     */
     protected void registerRecipesToServer(CommandSender sender, long start)
     {
         if(registered)
@@ -120,57 +206,250 @@ public class RecipeRegistrator
             throw new IllegalAccessError("This class is already registered, create a new one!");
         }
         
-        Iterator<Entry<BaseRecipe, RecipeInfo>> iterator;
-        Entry<BaseRecipe, RecipeInfo> entry;
-        BaseRecipe recipe;
-        RecipeInfo info;
+        finishPending(); // this registration is based on the previous one's results
         
-        // Remove old custom recipes/re-add old original recipes
-        iterator = RecipeManager.getRecipes().index.entrySet().iterator();
+        registered = true; // mark this class as registered so it doesn't get re-registered
+        
+        Recipes recipes = RecipeManager.getRecipes();
+        recipes.publishEdits(); // recipes registered through the API in this tick
         
-        while(iterator.hasNext())
+        // Build indexes if they weren't built already or if recipes were changed in the meantime
+        if(snapshot == null || base != recipes.snapshot)
         {
-            entry = iterator.next();
-            info = entry.getValue();
-            recipe = entry.getKey();
-            
-            if(info.getOwner() == RecipeOwner.RECIPEMANAGER)
+            prepareSnapshot();
+        }
+        
+        List<BaseRecipe> serverRemovals = new ArrayList<BaseRecipe>();
+        
+        // Re-add old original recipes, queue old custom recipes for removal
+        for(BaseRecipe recipe : removedRecipes)
+        {
+            if(recipe.hasFlag(FlagType.REMOVE) || recipe.hasFlag(FlagType.OVERRIDE))
             {
-                iterator.remove();
-                recipe.remove();
+                recipes.removeFromServer(recipe);
+            }
+            else
+            {
+                serverRemovals.add(recipe);
             }
         }
         
         // TODO registering event or something to re-register plugin recipes
         
-        iterator = queuedRecipes.entrySet().iterator();
-        long lastDisplay = System.currentTimeMillis();
-        long time;
-        int processed = 0;
-        int size = queuedRecipes.size();
-        
-        while(iterator.hasNext())
+        // Queue recipes that are replaced and originals of remove/override recipes for removal
+        for(BaseRecipe recipe : changedRecipes)
         {
-            entry = iterator.next();
+            boolean original = (recipe.hasFlag(FlagType.REMOVE) || recipe.hasFlag(FlagType.OVERRIDE));
             
-            RecipeManager.getRecipes().registerRecipe(entry.getKey(), entry.getValue());
-            
-            time = System.currentTimeMillis();
+            if(replacedRecipes.contains(recipe))
+            {
+                if(original)
+                {
+                    recipes.removeFromServer(recipe);
+                }
+                else
+                {
+                    serverRemovals.add(recipe);
+                }
+            }
             
-            if(time > lastDisplay + 1000)
+            if(original)
             {
-                Messages.sendAndLog(sender, String.format("%sRegistering recipes %d%%...", ChatColor.YELLOW, ((processed * 100) / size)));
-                lastDisplay = time;
+                serverRemovals.add(recipe);
             }
+        }
+        
+        // Remove them all in a single pass over server's recipes
+        long removeStart = System.nanoTime();
+        Map<BaseRecipe, Recipe> removed = Vanilla.removeCustomRecipes(serverRemovals);
+        double removeTime = (System.nanoTime() - removeStart) / 1000000000.0;
+        
+        RegisterTask task = new RegisterTask(sender, start, removed);
+        
+        if(!serverRemovals.isEmpty())
+        {
+            task.removedMessage = String.format("Removed %d server recipes in %.3f seconds with one pass instead of %d.", removed.size(), removeTime, serverRemovals.size());
+        }
+        
+        int budget = RecipeManager.getSettings().REGISTRATION_TICK_BUDGET;
+        
+        if(budget > 0)
+        {
+            task.budget = budget * 1000000L;
             
-            processed++;
+            if(!task.registerBatch())
+            {
+                pending = task;
+                task.runTaskTimer(RecipeManager.getPlugin(), 1, 1);
+            }
+        }
+        else
+        {
+            task.registerBatch();
+        }
+    }
+    
+    /**
+     * Finishes the registration that is still being done over multiple ticks, if any.<br>
+     * Must be called before changing the published indexes or server's recipes otherwise the remaining recipes would be added over those changes.
+     */
+    protected static void finishPending()
+    {
+        if(pending != null)
+        {
+            RegisterTask task = pending;
+            task.cancel();
+            task.budget = 0;
+            task.registerBatch();
+        }
+    }
+    
+    protected static void clean()
+    {
+        pending = null;
+    }
+    
+    /**
+     * Sets the callback for registration progress, by default it sends the percentage to the reload's sender.
+     * 
+     * @param progress
+     *            callback, can't be null
+     */
+    protected void setProgress(Progress progress)
+    {
+        if(progress == null)
+        {
+            throw new IllegalArgumentException("Progress callback can't be null!");
         }
         
-        registered = true; // mark this class as registered so it doesn't get re-registered
-        queuedRecipes.clear(); // clear the queue to let the class vanish
+        this.progress = progress;
+    }
+    
+    /**
+     * Callback for recipe registration progress, called in the main thread at most once a second.
+     */
+    protected interface Progress
+    {
+        void update(CommandSender sender, int processed, int total);
+    }
+    
+    private static final Progress DEFAULT_PROGRESS = new Progress()
+    {
+        @Override
+        public void update(CommandSender sender, int processed, int total)
+        {
+            Messages.sendAndLog(sender, String.format("%sRegistering recipes %d%%...", ChatColor.YELLOW, ((processed * 100) / total)));
+        }
+    };
+    
+    /**
+     * Adds the queued recipes to the server in batches and finishes the registration once they're all added.
+     */
+    private class RegisterTask extends BukkitRunnable
+    {
+        private final CommandSender sender;
+        private final long start;
+        private final Map<BaseRecipe, Recipe> removed;
+        private final Iterator<BaseRecipe> iterator;
+        private final int size;
+        private String removedMessage;
+        private long budget; // nanoseconds per tick, 0 means no limit
+        private long lastDisplay;
+        private int processed;
+        
+        private RegisterTask(CommandSender sender, long start, Map<BaseRecipe, Recipe> removed)
+        {
+            this.sender = sender;
+            this.start = start;
+            this.removed = removed;
+            this.iterator = changedRecipes.iterator();
+            this.size = changedRecipes.size();
+            this.lastDisplay = System.currentTimeMillis();
+        }
+        
+        @Override
+        public void run()
+        {
+            if(registerBatch())
+            {
+                cancel();
+            }
+        }
         
-        RecipeManager.getRecipeBooks().reload(sender); // (re)create recipe books for recipes
+        /**
+         * @return true if all recipes were added
+         */
+        private boolean registerBatch()
+        {
+            Recipes recipes = RecipeManager.getRecipes();
+            long end = System.nanoTime() + budget;
+            BaseRecipe recipe;
+            long time;
+            
+            while(iterator.hasNext())
+            {
+                recipe = iterator.next();
+                
+                if(recipe.hasFlag(FlagType.REMOVE) || recipe.hasFlag(FlagType.OVERRIDE))
+                {
+                    recipe.setBukkitRecipe(removed.get(recipe));
+                }
+                
+                recipes.registerToServer(recipe, false);
+                processed++;
+                
+                time = System.currentTimeMillis();
+                
+                if(time > lastDisplay + 1000)
+                {
+                    progress.update(sender, processed, size);
+                    lastDisplay = time;
+                }
+                
+                if(budget > 0 && iterator.hasNext() && System.nanoTime() >= end)
+                {
+                    return false; // continue next tick
+                }
+            }
+            
+            finish();
+            return true;
+        }
         
-        Messages.send(sender, String.format("All done in %.3f seconds, %d recipes processed.", ((System.currentTimeMillis() - start) / 1000.0), processed));
+        private void finish()
+        {
+            if(pending == this)
+            {
+                pending = null;
+            }
+            
+            RecipeManager.getRecipes().snapshot = snapshot; // all recipes are on the server, publish the new indexes
+            
+            int unchanged = queuedRecipes.size() - processed;
+            boolean changed = (processed > 0 || !removedRecipes.isEmpty());
+            
+            queuedRecipes.clear(); // clear the queue to let the class vanish
+            removedRecipes.clear();
+            replacedRecipes.clear();
+            changedRecipes.clear();
+            base = null;
+            snapshot = null;
+            
+            if(changed)
+            {
+                RecipeManager.getRecipeBooks().reload(sender); // (re)create recipe books for recipes
+            }
+            else
+            {
+                Messages.send(sender, "<gray>No recipes changed, books were not regenerated, use /rmreloadbooks to reload them.");
+            }
+            
+            Messages.send(sender, String.format("All done in %.3f seconds, %d recipes processed, %d unchanged.", ((System.currentTimeMillis() - start) / 1000.0), processed, unchanged));
+            
+            if(removedMessage != null)
+            {
+                Messages.send(sender, removedMessage);
+            }
+        }
     }
 }
@@ -0,0 +1,416 @@
+package ro.thehunters.digi.recipeManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.inventory.ItemStack;
+
+import ro.thehunters.digi.recipeManager.flags.FlagType;
+import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
+import ro.thehunters.digi.recipeManager.recipes.BaseRecipe.RecipeType;
+import ro.thehunters.digi.recipeManager.recipes.CombineRecipe;
+import ro.thehunters.digi.recipeManager.recipes.CraftRecipe;
+import ro.thehunters.digi.recipeManager.recipes.FuelRecipe;
+import ro.thehunters.digi.recipeManager.recipes.MultiResultRecipe;
+import ro.thehunters.digi.recipeManager.recipes.RecipeInfo;
+import ro.thehunters.digi.recipeManager.recipes.RecipeInfo.RecipeOwner;
+import ro.thehunters.digi.recipeManager.recipes.SingleResultRecipe;
+import ro.thehunters.digi.recipeManager.recipes.SmeltRecipe;
+
+/**
+ * A generation of RecipeManager's recipe indexes.<br>
+ * Snapshots are built privately (in any thread) and are not modified anymore once published in {@link Recipes},
+ * this allows readers to use them without locking or copying.<br>
+ * Changes are done by copying the current snapshot, editing the copy and publishing it.
+ */
+public class RecipeSnapshot
+{
+    // Recipe index
+    protected final Map<BaseRecipe, RecipeInfo> index;
+    
+    // Quick-find index
+    protected final IntMap<CraftRecipe> indexCraft;
+    protected final IntMap<CombineRecipe> indexCombine;
+    protected final LongMap<SmeltRecipe> indexSmelt;
+    protected final LongMap<SmeltRecipe> indexSmeltFuels;
+    protected final LongMap<FuelRecipe> indexFuels;
+    protected final Map<String, BaseRecipe> indexName;
+    
+    // Reverse indexes, item type ID to recipes that use it as ingredient or result, and recipe type to RecipeManager recipes
+    protected final IntMap<List<BaseRecipe>> indexIngredient;
+    protected final IntMap<List<BaseRecipe>> indexResult;
+    protected final Map<RecipeType, Set<BaseRecipe>> indexCustomType;
+    private final Map<BaseRecipe, BaseRecipe> indexInstance;
+    
+    // Crafting grid matcher for workbench recipes
+    protected final WorkbenchMatcher matcher;
+    
+    // Lists and sets created by this snapshot, the ones inherited from the copied snapshot are shared so they must be copied before editing
+    private final Set<Collection<BaseRecipe>> owned = Collections.newSetFromMap(new IdentityHashMap<Collection<BaseRecipe>, Boolean>());
+    
+    private final Map<BaseRecipe, RecipeInfo> indexView;
+    
+    /**
+     * Creates an empty snapshot.
+     */
+    protected RecipeSnapshot()
+    {
+        index = new HashMap<BaseRecipe, RecipeInfo>();
+        indexCraft = new IntMap<CraftRecipe>();
+        indexCombine = new IntMap<CombineRecipe>();
+        indexSmelt = new LongMap<SmeltRecipe>();
+        indexSmeltFuels = new LongMap<SmeltRecipe>();
+        indexFuels = new LongMap<FuelRecipe>();
+        indexName = new HashMap<String, BaseRecipe>();
+        indexIngredient = new IntMap<List<BaseRecipe>>();
+        indexResult = new IntMap<List<BaseRecipe>>();
+        indexCustomType = new EnumMap<RecipeType, Set<BaseRecipe>>(RecipeType.class);
+        indexInstance = new HashMap<BaseRecipe, BaseRecipe>();
+        matcher = new WorkbenchMatcher();
+        indexView = Collections.unmodifiableMap(index);
+    }
+    
+    /**
+     * Creates a copy of the specified snapshot which can be edited without affecting the original.
+     * 
+     * @param snapshot
+     */
+    protected RecipeSnapshot(RecipeSnapshot snapshot)
+    {
+        index = new HashMap<BaseRecipe, RecipeInfo>(snapshot.index);
+        indexCraft = new IntMap<CraftRecipe>(snapshot.indexCraft);
+        indexCombine = new IntMap<CombineRecipe>(snapshot.indexCombine);
+        indexSmelt = new LongMap<SmeltRecipe>(snapshot.indexSmelt);
+        indexSmeltFuels = new LongMap<SmeltRecipe>(snapshot.indexSmeltFuels);
+        indexFuels = new LongMap<FuelRecipe>(snapshot.indexFuels);
+        indexName = new HashMap<String, BaseRecipe>(snapshot.indexName);
+        indexIngredient = new IntMap<List<BaseRecipe>>(snapshot.indexIngredient);
+        indexResult = new IntMap<List<BaseRecipe>>(snapshot.indexResult);
+        indexCustomType = new EnumMap<RecipeType, Set<BaseRecipe>>(snapshot.indexCustomType);
+        indexInstance = new HashMap<BaseRecipe, BaseRecipe>(snapshot.indexInstance);
+        matcher = new WorkbenchMatcher(snapshot.matcher);
+        indexView = Collections.unmodifiableMap(index);
+    }
+    
+    /**
+     * Adds a recipe to the main index and, if it's not a removing recipe, to the quick-find indexes.
+     * 
+     * @param recipe
+     * @param info
+     */
+    protected void put(BaseRecipe recipe, RecipeInfo info)
+    {
+        if(indexInstance.containsKey(recipe))
+        {
+            remove(recipe);
+        }
+        
+        index.put(recipe, info); // Add to main index
+        link(recipe);
+        
+        if(info.getOwner() == RecipeOwner.RECIPEMANAGER)
+        {
+            Set<BaseRecipe> set = editableSet(indexCustomType.get(recipe.getType()));
+            set.add(recipe);
+            indexCustomType.put(recipe.getType(), set);
+        }
+        
+        // Add to quickfind index if it's not removed
+        if(!recipe.hasFlag(FlagType.REMOVE))
+        {
+            indexName.put(recipe.getName().toLowerCase(), recipe); // Add to name index
+            
+            if(recipe instanceof CraftRecipe)
+            {
+                indexCraft.put(recipe.getIndex(), (CraftRecipe)recipe);
+                matcher.add((CraftRecipe)recipe);
+            }
+            else if(recipe instanceof CombineRecipe)
+            {
+                indexCombine.put(recipe.getIndex(), (CombineRecipe)recipe);
+                matcher.add((CombineRecipe)recipe);
+            }
+            else if(recipe instanceof SmeltRecipe)
+            {
+                SmeltRecipe r = (SmeltRecipe)recipe;
+                
+                indexSmelt.put(r.getIndexKey(), r);
+                
+                if(r.hasFuel())
+                {
+                    indexSmeltFuels.put(r.getFuelIndexKey(), r);
+                }
+            }
+            else if(recipe instanceof FuelRecipe)
+            {
+                indexFuels.put(((FuelRecipe)recipe).getIndexKey(), (FuelRecipe)recipe);
+            }
+        }
+    }
+    
+    /**
+     * Adds a recipe that existed on the server before RecipeManager, only fuels are added to the quick-find indexes.
+     * 
+     * @param recipe
+     * @param info
+     */
+    protected void putInitial(BaseRecipe recipe, RecipeInfo info)
+    {
+        if(indexInstance.containsKey(recipe))
+        {
+            remove(recipe);
+        }
+        
+        index.put(recipe, info);
+        indexName.put(recipe.getName(), recipe);
+        link(recipe);
+        
+        if(recipe instanceof FuelRecipe)
+        {
+            indexFuels.put(((FuelRecipe)recipe).getIndexKey(), (FuelRecipe)recipe);
+        }
+    }
+    
+    /**
+     * Removes a recipe from all indexes.
+     * 
+     * @param recipe
+     * @return the removed recipe's info or null if it wasn't indexed
+     */
+    protected RecipeInfo remove(BaseRecipe recipe)
+    {
+        RecipeInfo info = index.remove(recipe); // Remove from main index
+        indexName.remove(recipe.getName().toLowerCase()); // Remove from name index
+        
+        BaseRecipe stored = indexInstance.get(recipe);
+        
+        if(stored != null)
+        {
+            unlink(stored); // Remove from reverse indexes, using the indexed instance because the given one might have different results
+            
+            Set<BaseRecipe> set = indexCustomType.get(stored.getType());
+            
+            if(set != null && set.contains(stored))
+            {
+                set = editableSet(set);
+                set.remove(stored);
+                indexCustomType.put(stored.getType(), set);
+            }
+        }
+        
+        // Remove from quickfind index
+        if(recipe instanceof CraftRecipe)
+        {
+            indexCraft.remove(recipe.getIndex());
+            matcher.remove((CraftRecipe)recipe);
+        }
+        else if(recipe instanceof CombineRecipe)
+        {
+            indexCombine.remove(recipe.getIndex());
+            matcher.remove((CombineRecipe)recipe);
+        }
+        else if(recipe instanceof SmeltRecipe)
+        {
+            SmeltRecipe r = (SmeltRecipe)recipe;
+            
+            indexSmelt.remove(r.getIndexKey());
+            
+            if(r.hasFuel())
+            {
+                indexSmeltFuels.remove(r.getFuelIndexKey());
+            }
+        }
+        else if(recipe instanceof FuelRecipe)
+        {
+            indexFuels.remove(((FuelRecipe)recipe).getIndexKey());
+        }
+        
+        return info;
+    }
+    
+    private void link(BaseRecipe recipe)
+    {
+        indexInstance.put(recipe, recipe);
+        
+        editTypeIndex(indexIngredient, getIngredients(recipe), recipe, true);
+        editTypeIndex(indexResult, getResults(recipe), recipe, true);
+    }
+    
+    private void unlink(BaseRecipe recipe)
+    {
+        indexInstance.remove(recipe);
+        
+        editTypeIndex(indexIngredient, getIngredients(recipe), recipe, false);
+        editTypeIndex(indexResult, getResults(recipe), recipe, false);
+    }
+    
+    private void editTypeIndex(IntMap<List<BaseRecipe>> map, Collection<? extends ItemStack> items, BaseRecipe recipe, boolean add)
+    {
+        int[] done = new int[items.size()];
+        int num = 0;
+        
+        for(ItemStack item : items)
+        {
+            if(item == null || item.getTypeId() == 0)
+            {
+                continue;
+            }
+            
+            int id = item.getTypeId();
+            boolean found = false;
+            
+            for(int i = 0; i < num && !found; i++)
+            {
+                found = (done[i] == id);
+            }
+            
+            if(found)
+            {
+                continue; // each recipe only once per type
+            }
+            
+            done[num++] = id;
+            List<BaseRecipe> list = map.get(id);
+            
+            if(add)
+            {
+                list = editableList(list);
+                list.add(recipe);
+                map.put(id, list);
+            }
+            else if(list != null)
+            {
+                list = editableList(list);
+                list.remove(recipe);
+                
+                if(list.isEmpty())
+                {
+                    map.remove(id);
+                }
+                else
+                {
+                    map.put(id, list);
+                }
+            }
+        }
+    }
+    
+    private List<BaseRecipe> editableList(List<BaseRecipe> list)
+    {
+        if(list != null && owned.contains(list))
+        {
+            return list;
+        }
+        
+        List<BaseRecipe> copy = (list == null ? new ArrayList<BaseRecipe>() : new ArrayList<BaseRecipe>(list));
+        owned.add(copy);
+        return copy;
+    }
+    
+    private Set<BaseRecipe> editableSet(Set<BaseRecipe> set)
+    {
+        if(set != null && owned.contains(set))
+        {
+            return set;
+        }
+        
+        Set<BaseRecipe> copy = (set == null ? new LinkedHashSet<BaseRecipe>() : new LinkedHashSet<BaseRecipe>(set));
+        owned.add(copy);
+        return copy;
+    }
+    
+    private static Collection<? extends ItemStack> getIngredients(BaseRecipe recipe)
+    {
+        if(recipe instanceof CraftRecipe)
+        {
+            return Arrays.asList(((CraftRecipe)recipe).getIngredients());
+        }
+        else if(recipe instanceof CombineRecipe)
+        {
+            return ((CombineRecipe)recipe).getIngredients();
+        }
+        else if(recipe instanceof SmeltRecipe)
+        {
+            return Arrays.asList(((SmeltRecipe)recipe).getIngredient());
+        }
+        else if(recipe instanceof FuelRecipe)
+        {
+            return Arrays.asList(((FuelRecipe)recipe).getIngredient());
+        }
+        
+        return Collections.emptyList();
+    }
+    
+    private static Collection<? extends ItemStack> getResults(BaseRecipe recipe)
+    {
+        if(recipe instanceof MultiResultRecipe)
+        {
+            return ((MultiResultRecipe)recipe).getResults();
+        }
+        else if(recipe instanceof SingleResultRecipe)
+        {
+            return Arrays.asList(((SingleResultRecipe)recipe).getResult());
+        }
+        
+        return Collections.emptyList();
+    }
+    
+    /**
+     * Finds recipes that have an ingredient or result (depending on the index) of the item's type and data value.<br>
+     * Item's data value can be {@link Vanilla#DATA_WILDCARD} to match any data value, recipe items with data wildcard match any data value as well.
+     * 
+     * @param ingredient
+     *            true to search ingredients, false to search results
+     * @param item
+     * @return read-only list of recipes
+     */
+    protected List<BaseRecipe> findRecipes(boolean ingredient, ItemStack item)
+    {
+        List<BaseRecipe> list = (ingredient ? indexIngredient : indexResult).get(item.getTypeId());
+        
+        if(list == null)
+        {
+            return Collections.emptyList();
+        }
+        
+        short data = item.getDurability();
+        
+        if(data == Vanilla.DATA_WILDCARD)
+        {
+            return Collections.unmodifiableList(list);
+        }
+        
+        List<BaseRecipe> found = new ArrayList<BaseRecipe>();
+        
+        for(BaseRecipe recipe : list)
+        {
+            for(ItemStack i : (ingredient ? getIngredients(recipe) : getResults(recipe)))
+            {
+                if(i != null && i.getTypeId() == item.getTypeId() && (i.getDurability() == data || i.getDurability() == Vanilla.DATA_WILDCARD))
+                {
+                    found.add(recipe);
+                    break;
+                }
+            }
+        }
+        
+        return Collections.unmodifiableList(found);
+    }
+    
+    /**
+     * @return read-only view of the main index, it never changes after this snapshot is published
+     */
+    public Map<BaseRecipe, RecipeInfo> getRecipeList()
+    {
+        return indexView;
+    }
+}
@@ -1,8 +1,11 @@
 package ro.thehunters.digi.recipeManager;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -16,6 +19,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 import ro.thehunters.digi.recipeManager.flags.Args;
 import ro.thehunters.digi.recipeManager.flags.FlagType;
 import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
+import ro.thehunters.digi.recipeManager.recipes.BaseRecipe.RecipeType;
 import ro.thehunters.digi.recipeManager.recipes.CombineRecipe;
 import ro.thehunters.digi.recipeManager.recipes.CraftRecipe;
 import ro.thehunters.digi.recipeManager.recipes.FuelRecipe;
@@ -27,8 +31,6 @@ import ro.thehunters.digi.recipeManager.recipes.SingleResultRecipe;
 import ro.thehunters.digi.recipeManager.recipes.SmeltRecipe;
 import ro.thehunters.digi.recipeManager.recipes.WorkbenchRecipe;
 
-import com.google.common.collect.ImmutableMap;
-
 /**
  * RecipeManager's recipe storage
  */
@@ -41,16 +43,11 @@ public class Recipes
     // Remember results for re-use on failure
     private static final Map<String, ItemResult> staticResults = new HashMap<String, ItemResult>();
     
-    // Recipe index
-    protected Map<BaseRecipe, RecipeInfo> index = new HashMap<BaseRecipe, RecipeInfo>();
+    // Recipe indexes, never modified once published, changes publish a new snapshot instead
+    protected volatile RecipeSnapshot snapshot = new RecipeSnapshot();
     
-    // Quick-find index
-    protected Map<Integer, CraftRecipe> indexCraft = new HashMap<Integer, CraftRecipe>();
-    protected Map<Integer, CombineRecipe> indexCombine = new HashMap<Integer, CombineRecipe>();
-    protected Map<Integer, SmeltRecipe> indexSmelt = new HashMap<Integer, SmeltRecipe>();
-    protected Map<String, SmeltRecipe> indexSmeltFuels = new HashMap<String, SmeltRecipe>();
-    protected Map<String, FuelRecipe> indexFuels = new HashMap<String, FuelRecipe>();
-    protected Map<String, BaseRecipe> indexName = new HashMap<String, BaseRecipe>();
+    // Changes done through the API in this tick, published all at once on the next read in the main thread or in the next tick
+    private RecipeSnapshot editing;
     
     protected Recipes()
     {
@@ -58,16 +55,46 @@ public class Recipes
     
     protected void clean()
     {
-        index.clear();
-        indexCraft.clear();
-        indexCombine.clear();
-        indexSmelt.clear();
-        indexFuels.clear();
-        indexName.clear();
+        snapshot = new RecipeSnapshot();
+        editing = null;
         
         staticResults.clear();
     }
     
+    /**
+     * Adds recipes that existed on the server before RecipeManager to the index.
+     * 
+     * @param recipes
+     */
+    protected void indexInitialRecipes(Map<BaseRecipe, RecipeInfo> recipes)
+    {
+        publishEdits();
+        
+        RecipeSnapshot next = new RecipeSnapshot(snapshot);
+        
+        for(Entry<BaseRecipe, RecipeInfo> e : recipes.entrySet())
+        {
+            next.putInitial(e.getKey(), e.getValue());
+        }
+        
+        snapshot = next;
+    }
+    
+    /**
+     * Packs an item type and data value into a single quick-find index key.<br>
+     * Negative data values and {@link Vanilla#DATA_WILDCARD} are stored as the wildcard.
+     * 
+     * @param typeId
+     *            item type ID
+     * @param data
+     *            item data value
+     * @return index key
+     */
+    public static long indexKey(int typeId, short data)
+    {
+        return ((long)typeId << 16) | (data < 0 ? Vanilla.DATA_WILDCARD : data);
+    }
+    
     /**
      * Alias for RecipeManager.getRecipes()
      * 
@@ -142,7 +169,8 @@ public class Recipes
     /**
      * Get the RecipeManager workbench recipe for the bukkit recipe inputted.<br>
      * Can be either craft or combine recipe.<br>
-     * If you know the specific type you can use {@link #getCraftRecipe(ItemStack)} or {@link #getCombineRecipe(ItemStack)}
+     * If you know the specific type you can use {@link #getCraftRecipe(ItemStack)} or {@link #getCombineRecipe(ItemStack)}<br>
+     * This always reads the recipe ID from the result's lore, if you have the crafting matrix use {@link #getWorkbenchRecipe(Recipe, ItemStack[])} instead.
      * 
      * @param recipe
      * @return Workbench recipe, otherwise it can be null if doesn't exist or you inputted a furnace recipe
@@ -162,6 +190,74 @@ public class Recipes
         return null;
     }
     
+    /**
+     * Get the RecipeManager workbench recipe for the bukkit recipe and crafting matrix inputted.<br>
+     * The matrix is matched against RecipeManager's recipes of the same kind (shaped/shapeless) and a match is only used if the bukkit recipe's result has its lore ID,
+     * otherwise the recipe is found by the lore ID alone.<br>
+     * Bukkit recipes are copied when added to the server so they can't be looked up by the instance RecipeManager added.
+     * 
+     * @param recipe
+     *            the recipe that the server matched
+     * @param matrix
+     *            crafting inventory matrix, 2x2 or 3x3
+     * @return Workbench recipe, otherwise it can be null if doesn't exist or you inputted a furnace recipe
+     */
+    public WorkbenchRecipe getWorkbenchRecipe(Recipe recipe, ItemStack[] matrix)
+    {
+        if(recipe == null)
+        {
+            return null;
+        }
+        
+        RecipeSnapshot s = getSnapshot();
+        WorkbenchRecipe workbenchRecipe = null;
+        ItemStack[] grid = (matrix == null ? null : WorkbenchMatcher.toGrid(matrix));
+        ItemStack result = recipe.getResult();
+        
+        if(grid != null && result != null)
+        {
+            // the result must have the matched recipe's ID, otherwise it's another recipe with the same ingredients
+            if(recipe instanceof ShapedRecipe)
+            {
+                workbenchRecipe = s.matcher.findShaped(grid, result);
+            }
+            else if(recipe instanceof ShapelessRecipe)
+            {
+                workbenchRecipe = s.matcher.findShapeless(grid, result);
+            }
+            
+            if(workbenchRecipe != null)
+            {
+                return workbenchRecipe;
+            }
+        }
+        
+        return getWorkbenchRecipe(recipe);
+    }
+    
+    /**
+     * Finds the RecipeManager workbench recipe that can be crafted with the crafting matrix inputted, without using the server's recipes.<br>
+     * Shaped recipes are checked first (as-is and mirrored), then shapeless recipes.
+     * 
+     * @param matrix
+     *            crafting inventory matrix, 2x2 or 3x3
+     * @return Workbench recipe or null if none matches
+     */
+    public WorkbenchRecipe findWorkbenchRecipe(ItemStack[] matrix)
+    {
+        ItemStack[] grid = WorkbenchMatcher.toGrid(matrix);
+        
+        if(grid == null)
+        {
+            return null;
+        }
+        
+        RecipeSnapshot s = getSnapshot();
+        WorkbenchRecipe recipe = s.matcher.findShaped(grid, null);
+        
+        return (recipe == null ? s.matcher.findShapeless(grid, null) : recipe);
+    }
+    
     /**
      * Get the RecipeManager craft recipe for the result inputted.<br>
      * The result must be the one from the bukkit recipe retrieved as it needs to check for result lore for the ID.<br>
@@ -171,7 +267,7 @@ public class Recipes
      */
     public CraftRecipe getCraftRecipe(ItemStack result)
     {
-        return (result == null ? null : indexCraft.get(Tools.getRecipeIdFromItem(result)));
+        return (result == null ? null : getSnapshot().indexCraft.get(Tools.getRecipeIdFromItem(result)));
     }
     
     /**
@@ -183,11 +279,12 @@ public class Recipes
      */
     public CombineRecipe getCombineRecipe(ItemStack result)
     {
-        return (result == null ? null : indexCombine.get(Tools.getRecipeIdFromItem(result)));
+        return (result == null ? null : getSnapshot().indexCombine.get(Tools.getRecipeIdFromItem(result)));
     }
     
     /**
-     * Get RecipeManager's furnace smelt recipe for the specified ingredient
+     * Get RecipeManager's furnace smelt recipe for the specified ingredient.<br>
+     * Recipes for the ingredient's exact data value are preferred over ones that accept any data value.
      * 
      * @param ingredient
      * @return
@@ -195,24 +292,19 @@ public class Recipes
      */
     public SmeltRecipe getSmeltRecipe(ItemStack ingredient)
     {
-        return (ingredient == null ? null : indexSmelt.get(ingredient.getTypeId()));
+        return (ingredient == null ? null : getFromIndex(getSnapshot().indexSmelt, ingredient));
     }
     
+    /**
+     * Get RecipeManager's furnace smelt recipe that requires the specified fuel.
+     * 
+     * @param fuel
+     * @return
+     *         Smelt recipe or null if doesn't exist
+     */
     public SmeltRecipe getSmeltRecipeWithFuel(ItemStack fuel)
     {
-        if(fuel == null)
-        {
-            return null;
-        }
-        
-        SmeltRecipe recipe = indexSmeltFuels.get(String.valueOf(fuel.getTypeId()));
-        
-        if(recipe == null)
-        {
-            return indexSmeltFuels.get(fuel.getTypeId() + ":" + fuel.getDurability());
-        }
-        
-        return recipe;
+        return (fuel == null ? null : getFromIndex(getSnapshot().indexSmeltFuels, fuel));
     }
     
     /**
@@ -225,19 +317,15 @@ public class Recipes
      */
     public FuelRecipe getFuelRecipe(ItemStack fuel)
     {
-        if(fuel == null)
-        {
-            return null;
-        }
-        
-        FuelRecipe recipe = indexFuels.get(String.valueOf(fuel.getTypeId()));
-        
-        if(recipe == null)
-        {
-            return indexFuels.get(fuel.getTypeId() + ":" + fuel.getDurability());
-        }
+        return (fuel == null ? null : getFromIndex(getSnapshot().indexFuels, fuel));
+    }
+    
+    private <T> T getFromIndex(LongMap<T> map, ItemStack item)
+    {
+        int typeId = item.getTypeId();
+        T recipe = map.get(indexKey(typeId, item.getDurability()));
         
-        return recipe;
+        return (recipe == null ? map.get(indexKey(typeId, Vanilla.DATA_WILDCARD)) : recipe);
     }
     
     /**
@@ -250,7 +338,7 @@ public class Recipes
      */
     public BaseRecipe getRecipeByName(String name)
     {
-        return indexName.get(name.toLowerCase());
+        return getSnapshot().indexName.get(name.toLowerCase());
     }
     
     /**
@@ -264,23 +352,63 @@ public class Recipes
      */
     public RecipeInfo getRecipeInfo(BaseRecipe recipe)
     {
-        return index.get(recipe);
+        return getSnapshot().index.get(recipe);
     }
     
     /**
-     * Gets a copy of RecipeManager's recipe list.<br>
+     * Gets RecipeManager's recipe list.<br>
+     * The list is read-only and never changes, registering or removing recipes (or reloading) replaces it with a new one.<br>
      * Returned values are mutable so you can edit individual recipes.<br>
-     * Removing from this list does nothing, see {@link BaseRecipe #remove()} method instead.
+     * To remove a recipe see {@link BaseRecipe #remove()} method instead.
      * 
-     * @return copy of hashmap
+     * @return read-only map
      */
     public Map<BaseRecipe, RecipeInfo> getRecipeList()
     {
-        return ImmutableMap.copyOf(index);
+        return getSnapshot().getRecipeList();
     }
     
     /**
-     * Register a recipe.
+     * Gets the recipes that use the specified item as an ingredient.<br>
+     * Item's data value can be {@link Vanilla#DATA_WILDCARD} to match any data value.
+     * 
+     * @param item
+     * @return read-only list of recipes, never null
+     */
+    public List<BaseRecipe> getRecipesWithIngredient(ItemStack item)
+    {
+        return getSnapshot().findRecipes(true, item);
+    }
+    
+    /**
+     * Gets the recipes that have the specified item as a result.<br>
+     * Item's data value can be {@link Vanilla#DATA_WILDCARD} to match any data value.
+     * 
+     * @param item
+     * @return read-only list of recipes, never null
+     */
+    public List<BaseRecipe> getRecipesWithResult(ItemStack item)
+    {
+        return getSnapshot().findRecipes(false, item);
+    }
+    
+    /**
+     * Gets the recipes of the specified type that were added by RecipeManager or by other plugins through it.
+     * 
+     * @param type
+     *            recipe type
+     * @return read-only set of recipes in the order they were added, never null
+     */
+    public Set<BaseRecipe> getCustomRecipes(RecipeType type)
+    {
+        Set<BaseRecipe> set = getSnapshot().indexCustomType.get(type);
+        
+        return (set == null ? Collections.<BaseRecipe> emptySet() : Collections.unmodifiableSet(set));
+    }
+    
+    /**
+     * Register a recipe.<br>
+     * The recipe indexes are copied once for all recipes registered or removed until the next lookup, this way registering many recipes in a row stays fast.
      * 
      * @param recipe
      */
@@ -293,57 +421,66 @@ public class Recipes
     
     /**
      * Registers a recipe with custom recipe info object.<br>
-     * NOTE: You should not use this if you don't know what the recipe info object REALLY does.
+     * NOTE: You should not use this if you don't know what the recipe info object REALLY does.<br>
+     * See {@link #registerRecipe(BaseRecipe)}.
      * 
      * @param recipe
      * @param info
      */
     public void registerRecipe(BaseRecipe recipe, RecipeInfo info)
+    {
+        RecipeRegistrator.finishPending();
+        
+        registerRecipe(getEditing(), recipe, info);
+    }
+    
+    /**
+     * Registers a recipe in the specified unpublished snapshot and to the server.
+     * 
+     * @param next
+     * @param recipe
+     * @param info
+     */
+    protected void registerRecipe(RecipeSnapshot next, BaseRecipe recipe, RecipeInfo info)
     {
         if(!recipe.isValid())
         {
             throw new IllegalArgumentException("Recipe is invalid ! Check ingredients and results.");
         }
         
-        if(index.remove(recipe) != null)
+        if(next.remove(recipe) != null)
         {
-            recipe.remove();
+            removeFromServer(recipe);
         }
         
-        index.put(recipe, info); // Add to main index
-        
-        // Add to quickfind index if it's not removed
-        if(!recipe.hasFlag(FlagType.REMOVE))
-        {
-            indexName.put(recipe.getName().toLowerCase(), recipe); // Add to name index
-            
-            if(recipe instanceof CraftRecipe)
-            {
-                indexCraft.put(recipe.getIndex(), (CraftRecipe)recipe);
-            }
-            else if(recipe instanceof CombineRecipe)
-            {
-                indexCombine.put(recipe.getIndex(), (CombineRecipe)recipe);
-            }
-            else if(recipe instanceof SmeltRecipe)
-            {
-                SmeltRecipe r = (SmeltRecipe)recipe;
-                
-                indexSmelt.put(recipe.getIndex(), r);
-                
-                if(r.hasFuel())
-                {
-                    indexSmeltFuels.put(r.getFuelIndex(), r);
-                }
-            }
-            else if(recipe instanceof FuelRecipe)
-            {
-                indexFuels.put(((FuelRecipe)recipe).getIndexString(), (FuelRecipe)recipe);
-            }
-        }
+        next.put(recipe, info);
         
+        registerToServer(recipe);
+    }
+    
+    /**
+     * Adds an already indexed recipe to the server.<br>
+     * Must be called in the main thread.
+     * 
+     * @param recipe
+     */
+    protected void registerToServer(BaseRecipe recipe)
+    {
+        registerToServer(recipe, true);
+    }
+    
+    /**
+     * Adds an already indexed recipe to the server.<br>
+     * Must be called in the main thread.
+     * 
+     * @param recipe
+     * @param removeOriginal
+     *            false if the original recipe of a remove/override recipe was already removed and set with {@link BaseRecipe#setBukkitRecipe(Recipe)}
+     */
+    protected void registerToServer(BaseRecipe recipe, boolean removeOriginal)
+    {
         // Remove original recipe
-        if(recipe.hasFlag(FlagType.REMOVE) || recipe.hasFlag(FlagType.OVERRIDE))
+        if(removeOriginal && (recipe.hasFlag(FlagType.REMOVE) || recipe.hasFlag(FlagType.OVERRIDE)))
         {
             recipe.setBukkitRecipe(Vanilla.removeCustomRecipe(recipe));
         }
@@ -389,48 +526,92 @@ public class Recipes
     }
     
     /**
-     * Removes a recipe from the server.
+     * Removes a recipe from the server.<br>
+     * Like {@link #registerRecipe(BaseRecipe)}, the recipe indexes are copied once for all changes until the next lookup.
      * 
      * @param recipe
      * @return removed recipe or null if not found
      */
     public Recipe removeRecipe(BaseRecipe recipe)
     {
-        if(recipe.hasFlag(FlagType.REMOVE) || recipe.hasFlag(FlagType.OVERRIDE))
-        {
-            Bukkit.getServer().addRecipe(recipe.getBukkitRecipe());
-        }
+        RecipeRegistrator.finishPending();
         
-        index.remove(recipe); // Remove from main index
-        indexName.remove(recipe.getName().toLowerCase()); // Remove from name index
+        getEditing().remove(recipe);
         
-        // Remove from quickfind index
-        if(recipe instanceof CraftRecipe)
-        {
-            indexCraft.remove(recipe.getIndex());
-        }
-        else if(recipe instanceof CombineRecipe)
+        return removeFromServer(recipe);
+    }
+    
+    /**
+     * Gets the unpublished snapshot that collects the API changes of this tick, creating it and scheduling its publish if needed.<br>
+     * Must be called in the main thread.
+     * 
+     * @return unpublished snapshot
+     */
+    private RecipeSnapshot getEditing()
+    {
+        if(editing == null)
         {
-            indexCombine.remove(recipe.getIndex());
+            editing = new RecipeSnapshot(snapshot);
+            
+            Bukkit.getScheduler().runTask(RecipeManager.getPlugin(), new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    publishEdits();
+                }
+            });
         }
-        else if(recipe instanceof SmeltRecipe)
+        
+        return editing;
+    }
+    
+    /**
+     * Gets the recipe indexes for lookups.<br>
+     * In the main thread the API changes of this tick are published first so callers see their own changes, other threads get the last published indexes.
+     * 
+     * @return published snapshot
+     */
+    protected RecipeSnapshot getSnapshot()
+    {
+        if(editing != null && Bukkit.isPrimaryThread())
         {
-            indexSmelt.remove(recipe.getIndex());
+            publishEdits();
         }
-        else if(recipe instanceof FuelRecipe)
+        
+        return snapshot;
+    }
+    
+    /**
+     * Publishes the changes done through the API in this tick, if any.<br>
+     * Must be called in the main thread before building a snapshot from the published one.
+     */
+    protected void publishEdits()
+    {
+        if(editing != null)
         {
-            indexFuels.remove(((FuelRecipe)recipe).getIndexString());
+            snapshot = editing;
+            editing = null;
         }
-        
-        // Remove from server if appliable
+    }
+    
+    /**
+     * Removes a recipe from the server without touching the indexes.<br>
+     * Must be called in the main thread.
+     * 
+     * @param recipe
+     * @return removed recipe or null if not found
+     */
+    protected Recipe removeFromServer(BaseRecipe recipe)
+    {
         if(recipe.hasFlag(FlagType.REMOVE) || recipe.hasFlag(FlagType.OVERRIDE))
         {
+            Bukkit.getServer().addRecipe(recipe.getBukkitRecipe());
+            
             return null;
         }
-        else
-        {
-            return Vanilla.removeCustomRecipe(recipe);
-        }
+        
+        return Vanilla.removeCustomRecipe(recipe);
     }
     
     protected static ItemResult recipeGetResult(Args a, WorkbenchRecipe recipe)
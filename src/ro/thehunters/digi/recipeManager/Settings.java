@@ -3,6 +3,7 @@ package ro.thehunters.digi.recipeManager;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
@@ -36,6 +37,12 @@ public class Settings
     public final int FURNACE_TICKS;
     
     public final boolean MULTITHREADING;
+    public final int REGISTRATION_TICK_BUDGET;
+    
+    public final boolean WATCH_FILES_ENABLED;
+    public final int WATCH_FILES_DELAY;
+    
+    public final int FLAG_PERMISSIONS_REFRESH;
     
     public final boolean CLEAR_RECIPES;
     
@@ -54,6 +61,11 @@ public class Settings
     protected Map<Material, Map<Short, String>> materialDataPrint = new HashMap<Material, Map<Short, String>>();
     protected Map<Enchantment, String> enchantPrint = new HashMap<Enchantment, String>();
     
+    protected Map<String, Material> materialLookup = new HashMap<String, Material>();
+    protected Map<String, Enchantment> enchantLookup = new HashMap<String, Enchantment>();
+    
+    protected Map<String, Tools.ParsedItem> parsedItems = new ConcurrentHashMap<String, Tools.ParsedItem>(); // item parse cache, a new settings instance starts empty because aliases might've changed
+    
     public static void reload(CommandSender sender)
     {
         new Settings(sender);
@@ -94,6 +106,12 @@ public class Settings
         FURNACE_TICKS = ticks;
         
         MULTITHREADING = yml.getBoolean("multithreading", true);
+        REGISTRATION_TICK_BUDGET = Math.max(yml.getInt("registration-tick-budget", 20), 0);
+        
+        WATCH_FILES_ENABLED = yml.getBoolean("watch-files.enabled", false);
+        WATCH_FILES_DELAY = Math.max(yml.getInt("watch-files.delay", 2), 1);
+        
+        FLAG_PERMISSIONS_REFRESH = Math.max(yml.getInt("flag-permissions-refresh", 10), 0);
         
         CLEAR_RECIPES = yml.getBoolean("clear-recipes", false);
         
@@ -122,6 +140,10 @@ public class Settings
         Messages.log("    color-console: " + COLOR_CONSOLE);
         Messages.log("    furnace-shift-click: " + FURNACE_SHIFT_CLICK);
         Messages.log("    furnace-ticks: " + FURNACE_TICKS);
+        Messages.log("    registration-tick-budget: " + REGISTRATION_TICK_BUDGET);
+        Messages.log("    watch-files.enabled: " + WATCH_FILES_ENABLED);
+        Messages.log("    watch-files.delay: " + WATCH_FILES_DELAY);
+        Messages.log("    flag-permissions-refresh: " + FLAG_PERMISSIONS_REFRESH);
         Messages.log("    metrics: " + METRICS);
         
         yml = loadYML(Files.FILE_ITEM_ALIASES);
@@ -224,7 +246,7 @@ public class Settings
             }
             
             String names = yml.getString(arg);
-            String[] split = names.split(",");
+            String[] split = Tools.split(names, ',');
             
             for(String str : split)
             {
@@ -245,6 +267,31 @@ public class Settings
                 }
             }
         }
+        
+        compileLookups();
+    }
+    
+    /**
+     * Builds the name lookup tables used by item and enchantment parsing, they contain ids, normalized names and aliases.<br>
+     * Aliases are added last so they take priority over names.
+     */
+    private void compileLookups()
+    {
+        for(Material m : Material.values())
+        {
+            materialLookup.put(String.valueOf(m.getId()), m);
+            materialLookup.put(Tools.parseAliasName(m.name()), m);
+        }
+        
+        materialLookup.putAll(materialNames);
+        
+        for(Enchantment e : Enchantment.values())
+        {
+            enchantLookup.put(String.valueOf(e.getId()), e);
+            enchantLookup.put(Tools.parseAliasName(e.getName()), e);
+        }
+        
+        enchantLookup.putAll(enchantNames);
     }
     
     private void parseMaterialNames(CommandSender sender, String names, Material material)
@@ -254,7 +301,7 @@ public class Settings
             return;
         }
         
-        String[] split = names.split(",");
+        String[] split = Tools.split(names, ',');
         
         for(String str : split)
         {
@@ -283,7 +330,7 @@ public class Settings
             return;
         }
         
-        String[] split = names.split(",");
+        String[] split = Tools.split(names, ',');
         
         for(String str : split)
         {
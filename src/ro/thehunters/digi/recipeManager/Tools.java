@@ -9,10 +9,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.WordUtils;
 import org.bukkit.Bukkit;
@@ -151,11 +153,30 @@ public class Tools
         }
     }
     
+    private static final Map<Class<?>, Map<String, Object>> enumLookups = new ConcurrentHashMap<Class<?>, Map<String, Object>>();
+    
+    /**
+     * Finds an enum value by its normalized name, a lookup table is built for each enum type on first use.
+     * 
+     * @param name
+     * @param values
+     *            all values of the enum
+     * @return matching value or null if not found
+     */
+    @SuppressWarnings("unchecked")
     public static <T>T parseEnum(String name, T[] values)
     {
-        if(name != null && !name.isEmpty())
+        if(name == null || name.isEmpty())
+        {
+            return null;
+        }
+        
+        Class<?> type = values.getClass().getComponentType();
+        Map<String, Object> lookup = enumLookups.get(type);
+        
+        if(lookup == null)
         {
-            name = Tools.parseAliasName(name);
+            lookup = new HashMap<String, Object>(values.length * 2);
             
             for(T t : values)
             {
@@ -163,48 +184,22 @@ public class Tools
                 {
                     String s = Tools.parseAliasName(((Enum<?>)t).name());
                     
-                    if(s.equals(name))
+                    if(!lookup.containsKey(s))
                     {
-                        return t;
+                        lookup.put(s, t);
                     }
                 }
             }
+            
+            enumLookups.put(type, lookup);
         }
         
-        return null;
+        return (T)lookup.get(Tools.parseAliasName(name));
     }
     
     public static Enchantment parseEnchant(String value)
     {
-        Enchantment enchant = null;
-        
-        try
-        {
-            enchant = Enchantment.getById(Integer.valueOf(value));
-        }
-        catch(NumberFormatException e)
-        {
-            value = Tools.parseAliasName(value);
-            
-            enchant = RecipeManager.getSettings().enchantNames.get(value);
-        }
-        
-        if(enchant != null)
-        {
-            return enchant;
-        }
-        
-        for(Enchantment e : Enchantment.values())
-        {
-            String s = e.getName().toLowerCase().replaceAll("[_\\s]+", "");
-            
-            if(s.equals(value))
-            {
-                return e;
-            }
-        }
-        
-        return null;
+        return RecipeManager.getSettings().enchantLookup.get(Tools.parseAliasName(value));
     }
     
     public static String removeExtensions(String value, Set<String> extensions)
@@ -502,9 +497,95 @@ public class Tools
         return false;
     }
     
+    /**
+     * Splits a string around a single character without using regular expressions.<br>
+     * Results are the same as {@link String#split(String)} with that character, trailing empty strings are removed.
+     * 
+     * @param string
+     * @param separator
+     * @return array of strings, the string itself if separator isn't found
+     */
+    public static String[] split(String string, char separator)
+    {
+        int index = string.indexOf(separator);
+        
+        if(index < 0)
+        {
+            return new String[]
+            {
+                string
+            };
+        }
+        
+        List<String> parts = new ArrayList<String>();
+        int start = 0;
+        
+        do
+        {
+            parts.add(string.substring(start, index));
+            start = index + 1;
+            index = string.indexOf(separator, start);
+        }
+        while(index >= 0);
+        
+        parts.add(string.substring(start));
+        
+        int size = parts.size();
+        
+        while(size > 0 && parts.get(size - 1).isEmpty())
+        {
+            size--;
+        }
+        
+        return parts.subList(0, size).toArray(new String[size]);
+    }
+    
+    /**
+     * Normalizes a name for alias lookups by lower-casing it and removing everything except letters and digits.
+     * 
+     * @param name
+     * @return normalized name, the same instance if it was already normalized
+     */
     public static String parseAliasName(String name)
     {
-        return name.replaceAll("[\\s\\W_]+", "").trim().toLowerCase();
+        int length = name.length();
+        int i = 0;
+        
+        while(i < length && isAliasChar(name.charAt(i)))
+        {
+            i++;
+        }
+        
+        if(i == length)
+        {
+            return name;
+        }
+        
+        char[] chars = new char[length];
+        int num = i;
+        
+        name.getChars(0, i, chars, 0);
+        
+        for(; i < length; i++)
+        {
+            char c = name.charAt(i);
+            
+            if(isAliasChar(c))
+            {
+                chars[num++] = c;
+            }
+            else if(c >= 'A' && c <= 'Z')
+            {
+                chars[num++] = (char)(c + ('a' - 'A'));
+            }
+        }
+        
+        return new String(chars, 0, num);
+    }
+    
+    private static boolean isAliasChar(char c)
+    {
+        return ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9'));
     }
     
     public static String parseAliasPrint(String name)
@@ -556,6 +637,54 @@ public class Tools
         public static final short NO_META = NO_ENCHANTMENTS | NO_NAME | NO_LORE | NO_COLOR;
     }
     
+    /**
+     * Result of parsing an item string along with the errors and warnings it caused.
+     */
+    protected static class ParsedItem
+    {
+        private static final int CACHE_LIMIT = 10000; // item strings typed in commands are cached too, this keeps the cache from growing forever
+        
+        private ItemStack item;
+        private final List<String[]> problems = new ArrayList<String[]>(0); // {type, message, tip}
+        
+        private void error(String error)
+        {
+            error(error, null);
+        }
+        
+        private void error(String error, String tip)
+        {
+            problems.add(new String[] { "error", error, tip });
+            ErrorReporter.error(error, tip);
+        }
+        
+        private void warning(String warning)
+        {
+            warning(warning, null);
+        }
+        
+        private void warning(String warning, String tip)
+        {
+            problems.add(new String[] { "warning", warning, tip });
+            ErrorReporter.warning(warning, tip);
+        }
+        
+        private void report()
+        {
+            for(String[] problem : problems)
+            {
+                if(problem[0].equals("error"))
+                {
+                    ErrorReporter.error(problem[1], problem[2]);
+                }
+                else
+                {
+                    ErrorReporter.warning(problem[1], problem[2]);
+                }
+            }
+        }
+    }
+    
     public static ItemResult parseItemResult(String string, int defaultData)
     {
         return parseItemResult(string, defaultData, 0);
@@ -563,7 +692,7 @@ public class Tools
     
     public static ItemResult parseItemResult(String string, int defaultData, int settings)
     {
-        String[] split = string.substring(1).trim().split("%");
+        String[] split = split(string.substring(1).trim(), '%');
         ItemResult result = new ItemResult();
         result.setChance(-1);
         
@@ -607,6 +736,18 @@ public class Tools
         return parseItem(value, defaultData, 0);
     }
     
+    /**
+     * Parses an item string, results are cached in {@link Settings} by string, default data and settings so recurring strings are only parsed once.<br>
+     * Errors and warnings of a cached string are reported again for every call, this way they show up for every file and line that uses it.
+     * 
+     * @param value
+     *            item string
+     * @param defaultData
+     *            data value used when the string doesn't define one
+     * @param settings
+     *            {@link ParseBit} flags
+     * @return a new item that can be freely modified, air or null if the string is invalid
+     */
     public static ItemStack parseItem(String value, int defaultData, int settings)
     {
         value = value.trim();
@@ -616,8 +757,34 @@ public class Tools
             return null;
         }
         
-        String[] args = value.split(";");
-        String[] split = args[0].trim().split(":");
+        Map<String, ParsedItem> cache = RecipeManager.getSettings().parsedItems;
+        String key = value + '\0' + defaultData + '\0' + settings;
+        ParsedItem parsed = cache.get(key);
+        
+        if(parsed == null)
+        {
+            parsed = new ParsedItem();
+            parsed.item = parseItem(parsed, value, defaultData, settings); // reports problems directly as well
+            
+            if(cache.size() >= ParsedItem.CACHE_LIMIT)
+            {
+                cache.clear();
+            }
+            
+            cache.put(key, parsed);
+        }
+        else
+        {
+            parsed.report();
+        }
+        
+        return (parsed.item == null ? null : parsed.item.clone());
+    }
+    
+    private static ItemStack parseItem(ParsedItem parsed, String value, int defaultData, int settings)
+    {
+        String[] args = split(value, ';');
+        String[] split = split(args[0].trim(), ':');
         
         if(split.length <= 0 || split[0].isEmpty())
         {
@@ -626,18 +793,13 @@ public class Tools
         
         value = split[0].trim();
         
-        Material material = RecipeManager.getSettings().materialNames.get(Tools.parseAliasName(value));
-        
-        if(material == null)
-        {
-            material = Material.matchMaterial(value);
-        }
+        Material material = RecipeManager.getSettings().materialLookup.get(Tools.parseAliasName(value));
         
         if(material == null)
         {
             if((settings & ParseBit.NO_ERRORS) != ParseBit.NO_ERRORS)
             {
-                ErrorReporter.error("Item '" + value + "' does not exist!", "Name could be different, look in '" + Files.FILE_INFO_NAMES + "' or '" + Files.FILE_ITEM_ALIASES + "' for material names.");
+                parsed.error("Item '" + value + "' does not exist!", "Name could be different, look in '" + Files.FILE_INFO_NAMES + "' or '" + Files.FILE_ITEM_ALIASES + "' for material names.");
             }
             
             return null;
@@ -681,7 +843,7 @@ public class Tools
                         {
                             if((settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
                             {
-                                ErrorReporter.warning("Item '" + material + " has unknown data number/alias: '" + value + "', defaulting to " + defaultData);
+                                parsed.warning("Item '" + material + " has unknown data number/alias: '" + value + "', defaulting to " + defaultData);
                             }
                         }
                     }
@@ -690,7 +852,7 @@ public class Tools
                     {
                         if((settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
                         {
-                            ErrorReporter.warning("Item '" + material + "' has data value -1, use * instead!", "The -1 value no longer works since Minecraft 1.5, for future compatibility use * instead or don't define a data value.");
+                            parsed.warning("Item '" + material + "' has data value -1, use * instead!", "The -1 value no longer works since Minecraft 1.5, for future compatibility use * instead or don't define a data value.");
                         }
                     }
                 }
@@ -699,7 +861,7 @@ public class Tools
             {
                 if((settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
                 {
-                    ErrorReporter.warning("Item '" + material + "' can't have data value defined here, data value ignored.");
+                    parsed.warning("Item '" + material + "' can't have data value defined here, data value ignored.");
                 }
             }
         }
@@ -720,7 +882,7 @@ public class Tools
                 {
                     if((settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
                     {
-                        ErrorReporter.warning("Item '" + material + "' has amount value that is not a number: " + value + ", defaulting to 1");
+                        parsed.warning("Item '" + material + "' has amount value that is not a number: " + value + ", defaulting to 1");
                     }
                 }
             }
@@ -728,7 +890,7 @@ public class Tools
             {
                 if((settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
                 {
-                    ErrorReporter.warning("Item '" + material + "' can't have amount defined here, amount ignored.");
+                    parsed.warning("Item '" + material + "' can't have amount defined here, amount ignored.");
                 }
             }
         }
@@ -741,7 +903,7 @@ public class Tools
             
             if(meta == null && (settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
             {
-                ErrorReporter.warning("The " + type + " material doesn't support item meta, name/lore/enchants ignored.");
+                parsed.warning("The " + type + " material doesn't support item meta, name/lore/enchants ignored.");
                 return item;
             }
             
@@ -774,14 +936,14 @@ public class Tools
                 }
                 else if(value.startsWith("enchant"))
                 {
-                    split = value.substring("enchant".length()).trim().split(" ");
+                    split = split(value.substring("enchant".length()).trim(), ' ');
                     value = split[0].trim();
                     
                     Enchantment enchant = Tools.parseEnchant(value);
                     
                     if(enchant == null && (settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
                     {
-                        ErrorReporter.error("Invalid enchantment: " + value, "Read '" + Files.FILE_INFO_NAMES + "' for enchantment names.");
+                        parsed.error("Invalid enchantment: " + value, "Read '" + Files.FILE_INFO_NAMES + "' for enchantment names.");
                         continue;
                     }
                     
@@ -801,7 +963,7 @@ public class Tools
                             {
                                 if((settings & ParseBit.NO_WARNINGS) != ParseBit.NO_WARNINGS)
                                 {
-                                    ErrorReporter.error("Invalid enchantment level number: " + value);
+                                    parsed.error("Invalid enchantment level number: " + value);
                                     continue;
                                 }
                             }
@@ -824,7 +986,7 @@ public class Tools
     
     public static Potion parsePotion(String value, FlagType type)
     {
-        String[] split = value.toLowerCase().split("\\|");
+        String[] split = split(value.toLowerCase(), '|');
         
         if(split.length == 0)
         {
@@ -928,7 +1090,7 @@ public class Tools
     
     public static PotionEffect parsePotionEffect(String value, FlagType type)
     {
-        String[] split = value.toLowerCase().split("\\|");
+        String[] split = split(value.toLowerCase(), '|');
         
         if(split.length == 0)
         {
@@ -1032,7 +1194,7 @@ public class Tools
     
     public static FireworkEffect parseFireworkEffect(String value, FlagType type)
     {
-        String[] split = value.toLowerCase().split("\\|");
+        String[] split = split(value.toLowerCase(), '|');
         
         if(split.length == 0)
         {
@@ -1064,7 +1226,7 @@ public class Tools
                     return null;
                 }
                 
-                split = split[1].split(",");
+                split = split(split[1], ',');
                 List<Color> colors = new ArrayList<Color>();
                 Color color;
                 
@@ -1100,7 +1262,7 @@ public class Tools
                     return null;
                 }
                 
-                split = split[1].split(",");
+                split = split(split[1], ',');
                 List<Color> colors = new ArrayList<Color>();
                 Color color;
                 
@@ -1187,7 +1349,7 @@ public class Tools
     
     public static Color parseColor(String rgbString)
     {
-        String[] split = rgbString.split(" ");
+        String[] split = split(rgbString, ' ');
         
         if(split.length == 3)
         {
@@ -1207,14 +1369,91 @@ public class Tools
         return null;
     }
     
-    public static String parseColors(String message, boolean removeColors)
+    private static final Map<String, ChatColor> colorTags = new HashMap<String, ChatColor>();
+    private static final int COLOR_TAG_MAX_LENGTH;
+    private static final String COLOR_CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRr";
+    
+    static
     {
+        int max = 0;
+        
         for(ChatColor color : ChatColor.values())
         {
-            message = message.replaceAll("(?i)<" + color.name() + ">", (removeColors ? "" : color.toString()));
+            colorTags.put(color.name().toLowerCase(), color);
+            max = Math.max(max, color.name().length());
+        }
+        
+        COLOR_TAG_MAX_LENGTH = max;
+    }
+    
+    /**
+     * Translates &lt;color&gt; tags and &amp; color codes in one pass.
+     * 
+     * @param message
+     * @param removeColors
+     *            if true then color tags and existing color codes are removed instead, &amp; codes are left as they are
+     * @return translated message, the same instance if there was nothing to translate
+     */
+    public static String parseColors(String message, boolean removeColors)
+    {
+        int length = message.length();
+        StringBuilder s = null;
+        int copied = 0; // message is copied to the builder up to this index
+        
+        for(int i = 0; i < length; i++)
+        {
+            char c = message.charAt(i);
+            String replace = null;
+            int skip = 0;
+            
+            if(c == '<')
+            {
+                int end = message.indexOf('>', i + 1);
+                
+                if(end > i + 1 && (end - i - 1) <= COLOR_TAG_MAX_LENGTH)
+                {
+                    ChatColor color = colorTags.get(message.substring(i + 1, end).toLowerCase());
+                    
+                    if(color != null)
+                    {
+                        replace = (removeColors ? "" : color.toString());
+                        skip = end - i;
+                    }
+                }
+            }
+            else if((i + 1) < length && COLOR_CODES.indexOf(message.charAt(i + 1)) > -1)
+            {
+                if(!removeColors && c == '&')
+                {
+                    replace = ChatColor.COLOR_CHAR + String.valueOf(Character.toLowerCase(message.charAt(i + 1)));
+                    skip = 1;
+                }
+                else if(removeColors && c == ChatColor.COLOR_CHAR)
+                {
+                    replace = "";
+                    skip = 1;
+                }
+            }
+            
+            if(replace != null)
+            {
+                if(s == null)
+                {
+                    s = new StringBuilder(length);
+                }
+                
+                s.append(message, copied, i).append(replace);
+                i += skip;
+                copied = i + 1;
+            }
+        }
+        
+        if(s == null)
+        {
+            return message;
         }
         
-        return removeColors ? ChatColor.stripColor(message) : ChatColor.translateAlternateColorCodes('&', message);
+        return s.append(message, copied, length).toString();
     }
     
     /**
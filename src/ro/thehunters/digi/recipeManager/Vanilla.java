@@ -1,6 +1,9 @@
 package ro.thehunters.digi.recipeManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -101,15 +104,6 @@ public class Vanilla
         initialRecipes.put(new FuelRecipe(Material.TRAPPED_CHEST, 15), info);
         initialRecipes.put(new FuelRecipe(Material.DAYLIGHT_DETECTOR, 15), info);
         
-        // Index fuel recipes
-        for(BaseRecipe recipe : initialRecipes.keySet())
-        {
-            if(recipe instanceof FuelRecipe)
-            {
-                RecipeManager.getRecipes().indexFuels.put(((FuelRecipe)recipe).getIndexString(), (FuelRecipe)recipe);
-            }
-        }
-        
         Iterator<Recipe> iterator = Bukkit.recipeIterator();
         Recipe r;
         
@@ -145,12 +139,7 @@ public class Vanilla
             initialRecipes.put(recipe, info);
         }
         
-        for(Entry<BaseRecipe, RecipeInfo> e : initialRecipes.entrySet())
-        {
-            BaseRecipe recipe = e.getKey();
-            RecipeManager.getRecipes().index.put(recipe, e.getValue());
-            RecipeManager.getRecipes().indexName.put(recipe.getName(), recipe);
-        }
+        RecipeManager.getRecipes().indexInitialRecipes(initialRecipes);
     }
     
     protected static void clean()
@@ -365,6 +354,163 @@ public class Vanilla
         return null;
     }
     
+    /**
+     * Removes multiple RecipeManager recipes from the <b>server</b> in a single pass over the server's recipe list.<br>
+     * Recipes to remove are indexed by a fingerprint of their shape/ingredients first so each server recipe is only compared to the few that could match it.<br>
+     * Each recipe removes one server recipe, just like {@link #removeCustomRecipe(BaseRecipe)} would.
+     * 
+     * @param recipes
+     *            RecipeManager recipes, can contain equal recipes.
+     * @return
+     *         map of the inputted recipe objects to the server recipe they removed, recipes that didn't find anything are not included
+     */
+    public static Map<BaseRecipe, Recipe> removeCustomRecipes(Collection<? extends BaseRecipe> recipes)
+    {
+        Map<BaseRecipe, Recipe> removed = new IdentityHashMap<BaseRecipe, Recipe>();
+        IntMap<List<PendingRemoval>> shaped = new IntMap<List<PendingRemoval>>();
+        IntMap<List<PendingRemoval>> shapeless = new IntMap<List<PendingRemoval>>();
+        IntMap<List<PendingRemoval>> furnace = new IntMap<List<PendingRemoval>>();
+        int pending = 0;
+        
+        for(BaseRecipe recipe : recipes)
+        {
+            if(recipe instanceof CraftRecipe)
+            {
+                PendingRemoval p = new PendingRemoval(recipe);
+                p.matrix = ((CraftRecipe)recipe).getIngredients();
+                Tools.trimItemMatrix(p.matrix);
+                p.matrixMirror = Tools.mirrorItemMatrix(p.matrix);
+                
+                int fingerprint = WorkbenchMatcher.shapeFingerprint(p.matrix);
+                int mirrorFingerprint = WorkbenchMatcher.shapeFingerprint(p.matrixMirror);
+                
+                addPending(shaped, fingerprint, p);
+                
+                if(mirrorFingerprint != fingerprint)
+                {
+                    addPending(shaped, mirrorFingerprint, p);
+                }
+            }
+            else if(recipe instanceof CombineRecipe)
+            {
+                PendingRemoval p = new PendingRemoval(recipe);
+                p.items = ((CombineRecipe)recipe).getIngredients();
+                
+                ItemStack[] items = p.items.toArray(new ItemStack[p.items.size()]);
+                addPending(shapeless, WorkbenchMatcher.shapelessFingerprint(items, items.length), p);
+            }
+            else if(recipe instanceof SmeltRecipe)
+            {
+                addPending(furnace, ((SmeltRecipe)recipe).getIngredient().getTypeId(), new PendingRemoval(recipe));
+            }
+            else
+            {
+                continue;
+            }
+            
+            pending++;
+        }
+        
+        Iterator<Recipe> iterator = Bukkit.recipeIterator();
+        Recipe r;
+        
+        while(pending > 0 && iterator.hasNext())
+        {
+            r = iterator.next();
+            PendingRemoval found = null;
+            
+            if(r instanceof ShapedRecipe)
+            {
+                ShapedRecipe sr = (ShapedRecipe)r;
+                ItemStack[] ingredients = Tools.convertShapedRecipeToItemMatrix(sr);
+                List<PendingRemoval> list = shaped.get(WorkbenchMatcher.shapeFingerprint(ingredients));
+                
+                if(list != null)
+                {
+                    for(PendingRemoval p : list)
+                    {
+                        if(!p.done && (Tools.compareItemMatrix(ingredients, p.matrix) || Tools.compareItemMatrix(ingredients, p.matrixMirror)))
+                        {
+                            found = p;
+                            break;
+                        }
+                    }
+                }
+            }
+            else if(r instanceof ShapelessRecipe)
+            {
+                List<ItemStack> ingredients = ((ShapelessRecipe)r).getIngredientList();
+                ItemStack[] items = ingredients.toArray(new ItemStack[ingredients.size()]);
+                List<PendingRemoval> list = shapeless.get(WorkbenchMatcher.shapelessFingerprint(items, items.length));
+                
+                if(list != null)
+                {
+                    for(PendingRemoval p : list)
+                    {
+                        if(!p.done && Tools.compareIngredientList(p.items, ingredients))
+                        {
+                            found = p;
+                            break;
+                        }
+                    }
+                }
+            }
+            else if(r instanceof FurnaceRecipe)
+            {
+                List<PendingRemoval> list = furnace.get(((FurnaceRecipe)r).getInput().getTypeId());
+                
+                if(list != null)
+                {
+                    for(PendingRemoval p : list)
+                    {
+                        if(!p.done)
+                        {
+                            found = p;
+                            break;
+                        }
+                    }
+                }
+            }
+            
+            if(found != null)
+            {
+                iterator.remove();
+                found.done = true;
+                removed.put(found.recipe, r);
+                pending--;
+            }
+        }
+        
+        return removed;
+    }
+    
+    private static void addPending(IntMap<List<PendingRemoval>> map, int fingerprint, PendingRemoval p)
+    {
+        List<PendingRemoval> list = map.get(fingerprint);
+        
+        if(list == null)
+        {
+            list = new ArrayList<PendingRemoval>(1);
+            map.put(fingerprint, list);
+        }
+        
+        list.add(p);
+    }
+    
+    private static class PendingRemoval
+    {
+        private final BaseRecipe recipe;
+        private ItemStack[] matrix;
+        private ItemStack[] matrixMirror;
+        private List<ItemStack> items;
+        private boolean done;
+        
+        private PendingRemoval(BaseRecipe recipe)
+        {
+            this.recipe = recipe;
+        }
+    }
+    
     /**
      * Remove all RecipeManager recipes from the server.
      */
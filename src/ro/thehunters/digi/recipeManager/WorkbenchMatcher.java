@@ -0,0 +1,362 @@
+package ro.thehunters.digi.recipeManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.bukkit.inventory.ItemStack;
+
+import ro.thehunters.digi.recipeManager.recipes.CombineRecipe;
+import ro.thehunters.digi.recipeManager.recipes.CraftRecipe;
+import ro.thehunters.digi.recipeManager.recipes.WorkbenchRecipe;
+
+/**
+ * Matches crafting grid contents to RecipeManager's workbench recipes without going through the server's recipe list.<br>
+ * Shaped recipes are indexed by a fingerprint of their trimmed shape and shapeless recipes by a fingerprint of their sorted ingredient types.<br>
+ * Data values are left out of fingerprints and checked on the few candidates found, this way data wildcards match as well.<br>
+ * Instances belong to a {@link RecipeSnapshot} and follow its copy-on-write rules.
+ */
+public class WorkbenchMatcher
+{
+    private static class Entry
+    {
+        private final WorkbenchRecipe recipe;
+        private final ItemStack[] ingredients;
+        
+        private Entry(WorkbenchRecipe recipe, ItemStack[] ingredients)
+        {
+            this.recipe = recipe;
+            this.ingredients = ingredients;
+        }
+        
+        /**
+         * Checks if the server's recipe result is marked with this recipe's ID, another plugin's recipe can have the same ingredients and result.
+         */
+        private boolean isResult(ItemStack result)
+        {
+            return (result == null || Tools.getRecipeIdFromItem(result) == recipe.getIndex());
+        }
+    }
+    
+    private final IntMap<List<Entry>> shaped;
+    private final IntMap<List<Entry>> shapeless;
+    
+    // Lists created by this matcher, inherited lists are shared with the copied matcher so they must be copied before editing
+    private final Set<List<Entry>> ownedLists = Collections.newSetFromMap(new IdentityHashMap<List<Entry>, Boolean>());
+    
+    protected WorkbenchMatcher()
+    {
+        shaped = new IntMap<List<Entry>>();
+        shapeless = new IntMap<List<Entry>>();
+    }
+    
+    protected WorkbenchMatcher(WorkbenchMatcher matcher)
+    {
+        shaped = new IntMap<List<Entry>>(matcher.shaped);
+        shapeless = new IntMap<List<Entry>>(matcher.shapeless);
+    }
+    
+    protected void add(WorkbenchRecipe recipe)
+    {
+        if(recipe instanceof CraftRecipe)
+        {
+            ItemStack[] ingredients = ((CraftRecipe)recipe).getIngredients();
+            
+            if(ingredients != null)
+            {
+                add(shaped, shapeFingerprint(ingredients), new Entry(recipe, ingredients));
+            }
+        }
+        else if(recipe instanceof CombineRecipe)
+        {
+            ItemStack[] ingredients = sortShapeless(((CombineRecipe)recipe).getIngredients());
+            
+            add(shapeless, shapelessFingerprint(ingredients, ingredients.length), new Entry(recipe, ingredients));
+        }
+    }
+    
+    protected void remove(WorkbenchRecipe recipe)
+    {
+        if(recipe instanceof CraftRecipe)
+        {
+            ItemStack[] ingredients = ((CraftRecipe)recipe).getIngredients();
+            
+            if(ingredients != null)
+            {
+                remove(shaped, shapeFingerprint(ingredients), recipe);
+            }
+        }
+        else if(recipe instanceof CombineRecipe)
+        {
+            ItemStack[] ingredients = sortShapeless(((CombineRecipe)recipe).getIngredients());
+            
+            remove(shapeless, shapelessFingerprint(ingredients, ingredients.length), recipe);
+        }
+    }
+    
+    private void add(IntMap<List<Entry>> map, int fingerprint, Entry entry)
+    {
+        List<Entry> list = editableList(map.get(fingerprint));
+        list.add(entry);
+        map.put(fingerprint, list);
+    }
+    
+    private void remove(IntMap<List<Entry>> map, int fingerprint, WorkbenchRecipe recipe)
+    {
+        List<Entry> list = map.get(fingerprint);
+        
+        if(list == null)
+        {
+            return;
+        }
+        
+        list = editableList(list);
+        Iterator<Entry> iterator = list.iterator();
+        
+        while(iterator.hasNext())
+        {
+            if(iterator.next().recipe.equals(recipe))
+            {
+                iterator.remove();
+            }
+        }
+        
+        if(list.isEmpty())
+        {
+            map.remove(fingerprint);
+        }
+        else
+        {
+            map.put(fingerprint, list);
+        }
+    }
+    
+    private List<Entry> editableList(List<Entry> list)
+    {
+        if(list != null && ownedLists.contains(list))
+        {
+            return list;
+        }
+        
+        List<Entry> copy = (list == null ? new ArrayList<Entry>(1) : new ArrayList<Entry>(list));
+        ownedLists.add(copy);
+        return copy;
+    }
+    
+    /**
+     * Converts a crafting inventory matrix (2x2 or 3x3) to a trimmed 3x3 matrix, empty slots are null.
+     * 
+     * @param matrix
+     *            the crafting matrix
+     * @return new 3x3 matrix or null if the matrix is empty
+     */
+    protected static ItemStack[] toGrid(ItemStack[] matrix)
+    {
+        ItemStack[] grid = new ItemStack[9];
+        int size = (matrix.length == 4 ? 2 : 3);
+        boolean empty = true;
+        
+        for(int i = 0; i < matrix.length && i < 9; i++)
+        {
+            ItemStack item = matrix[i];
+            
+            if(item != null && item.getTypeId() != 0)
+            {
+                grid[((i / size) * 3) + (i % size)] = item;
+                empty = false;
+            }
+        }
+        
+        if(empty)
+        {
+            return null;
+        }
+        
+        Tools.trimItemMatrix(grid);
+        
+        return grid;
+    }
+    
+    /**
+     * Finds the shaped recipe for the grid, as-is or mirrored.
+     * 
+     * @param grid
+     *            trimmed 3x3 matrix, see {@link #toGrid(ItemStack[])}
+     * @param result
+     *            result of the server's recipe, its lore must have the recipe's ID, or null for any recipe
+     * @return matching recipe or null
+     */
+    protected WorkbenchRecipe findShaped(ItemStack[] grid, ItemStack result)
+    {
+        WorkbenchRecipe recipe = findShapedExact(grid, result);
+        
+        if(recipe == null)
+        {
+            recipe = findShapedExact(Tools.mirrorItemMatrix(grid), result);
+        }
+        
+        return recipe;
+    }
+    
+    private WorkbenchRecipe findShapedExact(ItemStack[] grid, ItemStack result)
+    {
+        List<Entry> list = shaped.get(shapeFingerprint(grid));
+        
+        if(list != null)
+        {
+            for(Entry e : list)
+            {
+                if(Tools.compareItemMatrix(e.ingredients, grid) && e.isResult(result))
+                {
+                    return e.recipe;
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Finds the shapeless recipe for the grid.
+     * 
+     * @param grid
+     *            3x3 matrix, see {@link #toGrid(ItemStack[])}
+     * @param result
+     *            result of the server's recipe, its lore must have the recipe's ID, or null for any recipe
+     * @return matching recipe or null
+     */
+    protected WorkbenchRecipe findShapeless(ItemStack[] grid, ItemStack result)
+    {
+        ItemStack[] items = new ItemStack[9];
+        int num = 0;
+        
+        for(ItemStack item : grid)
+        {
+            if(item != null)
+            {
+                items[num++] = item;
+            }
+        }
+        
+        List<Entry> list = shapeless.get(shapelessFingerprint(items, num));
+        
+        if(list != null)
+        {
+            for(Entry e : list)
+            {
+                if(matchShapeless(e.ingredients, items, num) && e.isResult(result))
+                {
+                    return e.recipe;
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Checks the data values of the ingredients against the items, specific data values get their items first and wildcards take what's left.
+     */
+    private static boolean matchShapeless(ItemStack[] ingredients, ItemStack[] items, int num)
+    {
+        if(ingredients.length != num)
+        {
+            return false;
+        }
+        
+        boolean[] used = new boolean[num];
+        
+        for(ItemStack ingredient : ingredients)
+        {
+            boolean wildcard = isWildcard(ingredient.getDurability());
+            boolean found = false;
+            
+            for(int i = 0; i < num && !found; i++)
+            {
+                ItemStack item = items[i];
+                
+                if(!used[i] && item.getTypeId() == ingredient.getTypeId() && (wildcard || item.getDurability() == ingredient.getDurability()))
+                {
+                    used[i] = true;
+                    found = true;
+                }
+            }
+            
+            if(!found)
+            {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private static boolean isWildcard(short data)
+    {
+        return (data == Vanilla.DATA_WILDCARD || data < 0);
+    }
+    
+    /**
+     * Sorts shapeless ingredients with specific data values before wildcards.
+     */
+    private static ItemStack[] sortShapeless(List<ItemStack> ingredients)
+    {
+        ItemStack[] sorted = new ItemStack[ingredients.size()];
+        int num = 0;
+        
+        for(ItemStack item : ingredients)
+        {
+            if(!isWildcard(item.getDurability()))
+            {
+                sorted[num++] = item;
+            }
+        }
+        
+        for(ItemStack item : ingredients)
+        {
+            if(isWildcard(item.getDurability()))
+            {
+                sorted[num++] = item;
+            }
+        }
+        
+        return sorted;
+    }
+    
+    protected static int shapeFingerprint(ItemStack[] matrix)
+    {
+        int hash = 1;
+        
+        for(int i = 0; i < 9; i++)
+        {
+            hash = (31 * hash) + (matrix[i] == null ? 0 : matrix[i].getTypeId());
+        }
+        
+        return hash;
+    }
+    
+    protected static int shapelessFingerprint(ItemStack[] items, int num)
+    {
+        int[] ids = new int[num];
+        
+        for(int i = 0; i < num; i++)
+        {
+            ids[i] = items[i].getTypeId();
+        }
+        
+        Arrays.sort(ids);
+        
+        int hash = num;
+        
+        for(int id : ids)
+        {
+            hash = (31 * hash) + id;
+        }
+        
+        return hash;
+    }
+}
@@ -6,7 +6,6 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -199,10 +198,10 @@ public class RecipeCommand implements CommandExecutor
                 
                 List<String> list = new ArrayList<String>();
                 
-                for(Entry<BaseRecipe, RecipeInfo> e : RecipeManager.getRecipes().getRecipeList().entrySet())
+                List<BaseRecipe> found = (ingredient ? RecipeManager.getRecipes().getRecipesWithIngredient(item) : RecipeManager.getRecipes().getRecipesWithResult(item));
+                
+                for(BaseRecipe recipe : found)
                 {
-                    BaseRecipe recipe = e.getKey();
-                    
                     if(hasItem(recipe, item, ingredient))
                     {
                         list.add(recipe.printChat());
@@ -11,7 +11,7 @@ import ro.thehunters.digi.recipeManager.recipes.ItemResult;
 
 public class ArgBuilder
 {
-    private Args a = new Args();
+    private final Args a;
     
     public static void init()
     {
@@ -32,6 +32,27 @@ public class ArgBuilder
         return new ArgBuilder(a);
     }
     
+    /**
+     * Start building arguments into an existing argument class instead of a new one.<br>
+     * The arguments, reasons and effects are reset first, see {@link Args#reset()}.<br>
+     * Only reuse it for the same player, recipe and location because flags can keep it for tasks that run later, like {@link FlagExplode}.
+     * 
+     * @param a
+     *            the arguments to reuse, if null a new one is created
+     * @return linkable methods
+     */
+    public static ArgBuilder reuse(Args a)
+    {
+        if(a == null)
+        {
+            return new ArgBuilder();
+        }
+        
+        a.reset();
+        
+        return new ArgBuilder(a, null);
+    }
+    
     /**
      * Start building an argument class for flag events
      * 
@@ -39,18 +60,41 @@ public class ArgBuilder
      */
     public ArgBuilder()
     {
+        this(new Args(), null);
     }
     
+    /**
+     * Start building an argument class for flag events with a copy of the specified arguments, reasons and effects are not copied.
+     * 
+     * @param a
+     *            arguments to copy
+     */
     public ArgBuilder(Args a)
     {
-        a.setPlayerName(a.playerName());
-        a.setPlayer(a.player());
-        a.setLocation(a.location().clone());
-        a.setRecipe(a.recipe());
-        a.setRecipeType(a.recipeType());
-        a.setInventory(a.inventory());
-        a.setResult(a.result().clone());
-        a.setExtra(a.extra());
+        this(new Args(), a);
+    }
+    
+    /**
+     * @param target
+     *            arguments to build into
+     * @param source
+     *            arguments to copy into target, null to leave it as it is
+     */
+    private ArgBuilder(Args target, Args source)
+    {
+        this.a = target;
+        
+        if(source != null)
+        {
+            a.setPlayerName(source.playerName());
+            a.setPlayer(source.player());
+            a.setLocation(source.location() == null ? null : source.location().clone());
+            a.setRecipe(source.recipe());
+            a.setRecipeType(source.recipeType());
+            a.setInventory(source.inventory());
+            a.setResult(source.result() == null ? null : source.result().clone());
+            a.setExtra(source.extra());
+        }
     }
     
     public ArgBuilder player(String player)
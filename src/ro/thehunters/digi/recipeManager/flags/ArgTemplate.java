@@ -0,0 +1,211 @@
+package ro.thehunters.digi.recipeManager.flags;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ro.thehunters.digi.recipeManager.Tools;
+
+/**
+ * Text with {@link Args} variables like {player} or {result}, split once into text and variable parts.<br>
+ * Only the variables that appear in the text are evaluated when it's parsed.
+ * 
+ * @author Digi
+ */
+public class ArgTemplate
+{
+    private static final String[] VARIABLES =
+    {
+        "{player}",
+        "{playerdisplay}",
+        "{result}",
+        "{recipename}",
+        "{recipetype}",
+        "{inventorytype}",
+        "{world}",
+        "{x}",
+        "{y}",
+        "{z}",
+    };
+    
+    private static final int PLAYER = 0;
+    private static final int PLAYERDISPLAY = 1;
+    private static final int RESULT = 2;
+    private static final int RECIPENAME = 3;
+    private static final int RECIPETYPE = 4;
+    private static final int INVENTORYTYPE = 5;
+    private static final int WORLD = 6;
+    private static final int X = 7;
+    private static final int Y = 8;
+    private static final int Z = 9;
+    
+    private final String string;
+    private final String[] texts; // text before each variable and the text after the last one
+    private final int[] variables;
+    
+    private ArgTemplate(String string, String[] texts, int[] variables)
+    {
+        this.string = string;
+        this.texts = texts;
+        this.variables = variables;
+    }
+    
+    /**
+     * Splits the string into text and variable parts.
+     * 
+     * @param string
+     * @return new template
+     */
+    public static ArgTemplate compile(String string)
+    {
+        List<String> texts = new ArrayList<String>();
+        List<Integer> variables = new ArrayList<Integer>();
+        int length = string.length();
+        int start = 0;
+        
+        for(int i = string.indexOf('{'); i >= 0 && i < length; i = string.indexOf('{', i + 1))
+        {
+            for(int v = 0; v < VARIABLES.length; v++)
+            {
+                String variable = VARIABLES[v];
+                
+                if(string.regionMatches(i, variable, 0, variable.length()))
+                {
+                    texts.add(string.substring(start, i));
+                    variables.add(v);
+                    start = i + variable.length();
+                    i = start - 1;
+                    break;
+                }
+            }
+        }
+        
+        texts.add(string.substring(start));
+        
+        int[] vars = new int[variables.size()];
+        
+        for(int i = 0; i < vars.length; i++)
+        {
+            vars[i] = variables.get(i);
+        }
+        
+        return new ArgTemplate(string, texts.toArray(new String[texts.size()]), vars);
+    }
+    
+    /**
+     * Compiles the strings that don't have a template yet, templates of strings that didn't change are reused.
+     * 
+     * @param strings
+     * @param templates
+     *            previously compiled templates in the same order as the strings, can be null
+     * @return templates for all strings in the same order
+     */
+    public static List<ArgTemplate> compile(List<String> strings, List<ArgTemplate> templates)
+    {
+        int size = strings.size();
+        
+        if(templates != null && templates.size() == size)
+        {
+            boolean same = true;
+            
+            for(int i = 0; i < size && same; i++)
+            {
+                same = (templates.get(i).string == strings.get(i));
+            }
+            
+            if(same)
+            {
+                return templates;
+            }
+        }
+        
+        List<ArgTemplate> list = new ArrayList<ArgTemplate>(size);
+        
+        for(int i = 0; i < size; i++)
+        {
+            String string = strings.get(i);
+            ArgTemplate template = (templates != null && i < templates.size() ? templates.get(i) : null);
+            
+            list.add(template != null && template.string == string ? template : compile(string));
+        }
+        
+        return list;
+    }
+    
+    /**
+     * @return the original string
+     */
+    public String getString()
+    {
+        return string;
+    }
+    
+    /**
+     * @return true if the string has any variables
+     */
+    public boolean hasVariables()
+    {
+        return (variables.length > 0);
+    }
+    
+    /**
+     * Replaces the variables with values from the arguments.
+     * 
+     * @param a
+     * @return the string with variables replaced
+     */
+    public String parseVariables(Args a)
+    {
+        if(variables.length == 0)
+        {
+            return string;
+        }
+        
+        StringBuilder s = new StringBuilder(string.length() + (variables.length * 16));
+        
+        for(int i = 0; i < variables.length; i++)
+        {
+            s.append(texts[i]).append(getVariable(a, variables[i]));
+        }
+        
+        return s.append(texts[variables.length]).toString();
+    }
+    
+    private static String getVariable(Args a, int variable)
+    {
+        switch(variable)
+        {
+            case PLAYER:
+                return (a.hasPlayerName() ? a.playerName() : "(nobody)");
+            
+            case PLAYERDISPLAY:
+                return (a.hasPlayer() ? a.player().getDisplayName() : (a.hasPlayerName() ? a.playerName() : "(nobody)"));
+            
+            case RESULT:
+                return Tools.Item.print(a.result());
+            
+            case RECIPENAME:
+                return (a.hasRecipe() ? a.recipe().getName() : "(unknown)");
+            
+            case RECIPETYPE:
+                return (a.hasRecipeType() ? a.recipeType().toString().toLowerCase() : "(unknown)");
+            
+            case INVENTORYTYPE:
+                return (a.hasInventory() ? a.inventory().getType().toString().toLowerCase() : "(unknown)");
+            
+            case WORLD:
+                return (a.hasLocation() ? a.location().getWorld().getName() : "(unknown)");
+            
+            case X:
+                return (a.hasLocation() ? String.valueOf(a.location().getBlockX()) : "(?)");
+            
+            case Y:
+                return (a.hasLocation() ? String.valueOf(a.location().getBlockY()) : "(?)");
+            
+            case Z:
+                return (a.hasLocation() ? String.valueOf(a.location().getBlockZ()) : "(?)");
+            
+            default:
+                return "";
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.bukkit.Location;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 
 import ro.thehunters.digi.recipeManager.Messages;
 import ro.thehunters.digi.recipeManager.Tools;
@@ -31,8 +32,55 @@ public class Args
     private ItemResult result;
     private Object extra;
     
-    private List<String> reasons;
-    private List<String> effects;
+    private List<Object> reasons; // strings or messages that are formatted when they're needed
+    private List<Object> effects;
+    
+    private boolean countReasons; // reasons are only counted instead of being formatted and stored, used when they won't be shown
+    private int reasonCount;
+    
+    /**
+     * Message added by {@link Args#addReason(Messages, String, Object...)} or {@link Args#addEffect(Messages, String, Object...)}, it's only formatted if it's sent or read.
+     */
+    private static class PendingMessage
+    {
+        private final Messages globalMessage;
+        private final String customMessage;
+        private final Object[] variables;
+        
+        private PendingMessage(Messages globalMessage, String customMessage, Object[] variables)
+        {
+            this.globalMessage = globalMessage;
+            this.customMessage = customMessage;
+            this.variables = (variables == null ? null : variables.clone());
+            
+            if(variables != null)
+            {
+                for(int i = 1; i < variables.length; i += 2)
+                {
+                    if(variables[i] instanceof ItemStack)
+                    {
+                        this.variables[i] = ((ItemStack)variables[i]).clone(); // printed as it is now, not as it is when formatted
+                    }
+                }
+            }
+        }
+        
+        private String format()
+        {
+            if(variables != null)
+            {
+                for(int i = 1; i < variables.length; i += 2)
+                {
+                    if(variables[i] instanceof ItemStack)
+                    {
+                        variables[i] = Tools.Item.print((ItemStack)variables[i]);
+                    }
+                }
+            }
+            
+            return globalMessage.getCustom(customMessage, variables);
+        }
+    }
     
     protected Args()
     {
@@ -172,21 +220,33 @@ public class Args
         return extra != null;
     }
     
+    /**
+     * Formats the reasons into a new list on every call.<br>
+     * Editing the returned list does not change the reasons, use {@link #addCustomReason(String)} and {@link #clearReasons()} for that.
+     * 
+     * @return formatted copy of the reasons or null if there are none
+     */
     public List<String> reasons()
     {
-        return reasons;
+        return format(reasons);
     }
     
     public boolean hasReasons()
     {
-        return (reasons != null && !reasons.isEmpty());
+        return (reasonCount > 0 || (reasons != null && !reasons.isEmpty()));
     }
     
     public void addCustomReason(String message)
     {
+        if(countReasons)
+        {
+            reasonCount++;
+            return;
+        }
+        
         if(reasons == null)
         {
-            reasons = new ArrayList<String>();
+            reasons = new ArrayList<Object>();
         }
         
         debug("reason", message);
@@ -194,27 +254,64 @@ public class Args
         reasons.add(message);
     }
     
+    /**
+     * Adds a reason that is formatted only when it's sent or read.<br>
+     * ItemStack variables are copied now and printed with {@link Tools.Item#print(ItemStack)} at that time as well, so later changes to them are not shown.
+     * 
+     * @param globalMessage
+     * @param customMessage
+     * @param variables
+     */
     public void addReason(Messages globalMessage, String customMessage, Object... variables)
     {
-        addCustomReason(globalMessage.getCustom(customMessage, variables));
+        if(countReasons)
+        {
+            reasonCount++;
+            return;
+        }
+        
+        if(reasons == null)
+        {
+            reasons = new ArrayList<Object>();
+        }
+        
+        reasons.add(new PendingMessage(globalMessage, customMessage, variables));
     }
     
     public void clearReasons()
     {
+        reasonCount = 0;
+        
         if(reasons != null)
         {
             reasons.clear();
         }
     }
     
+    /**
+     * Sets if reasons should only be counted instead of being formatted and stored, {@link #reasons()} won't have them.
+     * 
+     * @param countReasons
+     */
+    protected void setCountReasons(boolean countReasons)
+    {
+        this.countReasons = countReasons;
+    }
+    
     public void sendReasons(CommandSender sender, String prefix)
     {
         sendList(sender, prefix, reasons);
     }
     
+    /**
+     * Formats the effects into a new list on every call.<br>
+     * Editing the returned list does not change the effects, use {@link #addCustomEffect(String)} and {@link #clearEffects()} for that.
+     * 
+     * @return formatted copy of the effects or null if there are none
+     */
     public List<String> effects()
     {
-        return effects;
+        return format(effects);
     }
     
     public boolean hasEffects()
@@ -226,7 +323,7 @@ public class Args
     {
         if(effects == null)
         {
-            effects = new ArrayList<String>();
+            effects = new ArrayList<Object>();
         }
         
         debug("effect", message);
@@ -234,9 +331,22 @@ public class Args
         effects.add(message);
     }
     
+    /**
+     * Adds an effect message that is formatted only when it's sent or read.<br>
+     * ItemStack variables are copied now and printed with {@link Tools.Item#print(ItemStack)} at that time as well, so later changes to them are not shown.
+     * 
+     * @param globalMessage
+     * @param customMessage
+     * @param variables
+     */
     public void addEffect(Messages globalMessage, String customMessage, Object... variables)
     {
-        addCustomEffect(globalMessage.getCustom(customMessage, variables));
+        if(effects == null)
+        {
+            effects = new ArrayList<Object>();
+        }
+        
+        effects.add(new PendingMessage(globalMessage, customMessage, variables));
     }
     
     public void clearEffects()
@@ -258,15 +368,35 @@ public class Args
         clearEffects();
     }
     
-    private void sendList(CommandSender sender, String prefix, List<String> list)
+    /**
+     * Clears all arguments, reasons and effects so this instance can be used again for another event.<br>
+     * The reason and effect lists are kept so they don't need to be allocated again.
+     */
+    public void reset()
+    {
+        player = null;
+        playerName = null;
+        location = null;
+        recipe = null;
+        recipeType = null;
+        inventory = null;
+        result = null;
+        extra = null;
+        
+        clear();
+    }
+    
+    private void sendList(CommandSender sender, String prefix, List<Object> list)
     {
         if(sender == null || list == null)
         {
             return;
         }
         
-        for(String s : list)
+        for(Object o : list)
         {
+            String s = format(o);
+            
             if(s != null)
             {
                 Messages.send(sender, prefix + s);
@@ -274,22 +404,38 @@ public class Args
         }
     }
     
-    public String parseVariables(String string)
+    private static String format(Object message)
     {
-        String name = (hasPlayerName() ? playerName() : "(nobody)");
+        return (message instanceof PendingMessage ? ((PendingMessage)message).format() : (String)message);
+    }
+    
+    private static List<String> format(List<Object> list)
+    {
+        if(list == null)
+        {
+            return null;
+        }
+        
+        List<String> formatted = new ArrayList<String>(list.size());
         
-        string = string.replace("{player}", name);
-        string = string.replace("{playerdisplay}", (player != null ? player.getDisplayName() : name));
-        string = string.replace("{result}", Tools.Item.print(result()));
-        string = string.replace("{recipename}", (hasRecipe() ? recipe().getName() : "(unknown)"));
-        string = string.replace("{recipetype}", (hasRecipeType() ? recipeType().toString().toLowerCase() : "(unknown)"));
-        string = string.replace("{inventorytype}", (hasInventory() ? inventory().getType().toString().toLowerCase() : "(unknown)"));
-        string = string.replace("{world}", (hasLocation() ? location().getWorld().getName() : "(unknown)"));
-        string = string.replace("{x}", (hasLocation() ? "" + location().getBlockX() : "(?)"));
-        string = string.replace("{y}", (hasLocation() ? "" + location().getBlockY() : "(?)"));
-        string = string.replace("{z}", (hasLocation() ? "" + location().getBlockZ() : "(?)"));
+        for(Object o : list)
+        {
+            formatted.add(format(o));
+        }
         
-        return string;
+        return formatted;
+    }
+    
+    /**
+     * Replaces variables like {player} or {result} in the string, see {@link ArgTemplate}.<br>
+     * Strings that are used more than once should be compiled once with {@link ArgTemplate#compile(String)} instead.
+     * 
+     * @param string
+     * @return the string with variables replaced
+     */
+    public String parseVariables(String string)
+    {
+        return ArgTemplate.compile(string).parseVariables(this);
     }
     
     /**
@@ -4,7 +4,7 @@ import org.apache.commons.lang.Validate;
 import org.bukkit.entity.Player;
 
 import ro.thehunters.digi.recipeManager.ErrorReporter;
-import ro.thehunters.digi.recipeManager.Permissions;
+import ro.thehunters.digi.recipeManager.Players;
 import ro.thehunters.digi.recipeManager.flags.FlagType.Bit;
 import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
 import ro.thehunters.digi.recipeManager.recipes.ItemResult;
@@ -56,20 +56,7 @@ public class Flag implements Cloneable
             return false; // no player, no skip
         }
         
-        if(player.hasPermission(Permissions.FLAG_ALL))
-        {
-            return true; // has permission for all flags
-        }
-        
-        for(String name : getType().getNames())
-        {
-            if(player.hasPermission(Permissions.FLAG_PREFIX + name))
-            {
-                return true; // has permission for this flag
-            }
-        }
-        
-        return false; // no permission for flag
+        return Players.hasFlagPermission(player, getType()); // cached for a few seconds
     }
     
     /**
@@ -52,6 +52,7 @@ public class FlagBroadcast extends Flag
     // Flag code
     
     private String message;
+    private ArgTemplate template;
     private String permission;
     
     public FlagBroadcast()
@@ -61,6 +62,7 @@ public class FlagBroadcast extends Flag
     public FlagBroadcast(FlagBroadcast flag)
     {
         message = flag.message;
+        template = flag.template;
         permission = flag.permission;
     }
     
@@ -84,6 +86,7 @@ public class FlagBroadcast extends Flag
     public void setMessage(String message)
     {
         this.message = message;
+        this.template = (message == null ? null : ArgTemplate.compile(message));
     }
     
     public String getPermission()
@@ -115,15 +118,17 @@ public class FlagBroadcast extends Flag
     @Override
     protected void onCrafted(Args a)
     {
-        Validate.notNull(message);
+        Validate.notNull(template);
+        
+        String message = template.parseVariables(a);
         
         if(permission == null)
         {
-            Bukkit.broadcastMessage(a.parseVariables(message));
+            Bukkit.broadcastMessage(message);
         }
         else
         {
-            Bukkit.broadcast(a.parseVariables(message), permission);
+            Bukkit.broadcast(message, permission);
         }
     }
 }
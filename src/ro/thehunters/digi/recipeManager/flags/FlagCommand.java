@@ -53,6 +53,7 @@ public class FlagCommand extends Flag
     // Flag code
     
     private List<String> commands = new ArrayList<String>();
+    private List<ArgTemplate> templates; // compiled commands, recompiled if commands were changed
     
     public FlagCommand()
     {
@@ -61,6 +62,7 @@ public class FlagCommand extends Flag
     public FlagCommand(FlagCommand flag)
     {
         commands.addAll(flag.commands);
+        templates = flag.templates;
     }
     
     @Override
@@ -123,6 +125,7 @@ public class FlagCommand extends Flag
     protected boolean onParse(String value)
     {
         addCommand(value);
+        templates = ArgTemplate.compile(commands, templates);
         
         return true;
     }
@@ -144,9 +147,11 @@ public class FlagCommand extends Flag
             }
         }
         
-        for(String command : commands)
+        templates = ArgTemplate.compile(commands, templates);
+        
+        for(ArgTemplate template : templates)
         {
-            command = a.parseVariables(command);
+            String command = template.parseVariables(a);
             
             if(command.charAt(0) == '/')
             {
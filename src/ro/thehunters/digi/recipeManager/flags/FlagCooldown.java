@@ -1,13 +1,15 @@
 package ro.thehunters.digi.recipeManager.flags;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import org.apache.commons.lang.mutable.MutableInt;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import ro.thehunters.digi.recipeManager.Cooldowns;
 import ro.thehunters.digi.recipeManager.ErrorReporter;
 import ro.thehunters.digi.recipeManager.Messages;
 import ro.thehunters.digi.recipeManager.Tools;
+import ro.thehunters.digi.recipeManager.recipes.BaseRecipe;
+import ro.thehunters.digi.recipeManager.recipes.ItemResult;
+import ro.thehunters.digi.recipeManager.recipes.MultiResultRecipe;
 
 public class FlagCooldown extends Flag
 {
@@ -33,7 +35,7 @@ public class FlagCooldown extends Flag
             "Sets a cooldown time for crafting a recipe or result.",
             "Once a recipe/result is used, the crafter can not craft it again for the specified amount of time.",
             "If set on a result, the result will be unavailable to the crafter for the cooldown time but the rest of results and the recipe will work as before.",
-            "NOTE: cooldown is reset when reloading/restarting server.",
+            "NOTE: cooldowns are kept when reloading/restarting server but are reset if the recipe's ingredients or the result's position changes.",
             "",
             "The <number> argument must be a number, by default it's seconds.",
             "The [suffix] argument defines what the <number> value is scaled in, values for suffix can be:",
@@ -61,12 +63,14 @@ public class FlagCooldown extends Flag
     
     // Flag code
     
-    private final Map<String, MutableInt> cooldownTime = new HashMap<String, MutableInt>();
+    private static final AtomicInteger unboundIds = new AtomicInteger(); // ids for flags that are not in a recipe
     
     private int cooldown;
     private boolean global = false;
     private String failMessage;
     private String craftMessage;
+    private String cooldownId;
+    private String unboundId;
     
     public FlagCooldown()
     {
@@ -79,7 +83,7 @@ public class FlagCooldown extends Flag
         failMessage = flag.failMessage;
         craftMessage = flag.craftMessage;
         
-        // no cloning of cooldownTime Map.
+        // no cloning of cooldownId, it depends on the recipe/result the flag is in
     }
     
     @Override
@@ -139,15 +143,7 @@ public class FlagCooldown extends Flag
             return -1;
         }
         
-        MutableInt get = cooldownTime.get(playerName);
-        int time = (int)(System.currentTimeMillis() / 1000);
-        
-        if(get == null || time >= get.intValue())
-        {
-            return 0;
-        }
-        
-        return get.intValue() - time;
+        return (int)((Cooldowns.getTimeLeft(getCooldownId(), playerName) + 999) / 1000);
     }
     
     /**
@@ -195,9 +191,66 @@ public class FlagCooldown extends Flag
             return false;
         }
         
-        MutableInt get = cooldownTime.get(playerName);
+        return (Cooldowns.getTimeLeft(getCooldownId(), playerName) == 0);
+    }
+    
+    /**
+     * Gets the id that identifies this flag's recipe or result in {@link Cooldowns}.<br>
+     * It's made from the recipe's hash so it stays the same after reloading recipes and restarting the server.<br>
+     * Flags that are not in a recipe get an id that is unique only until the server stops, see {@link #isCooldownSaved()}.
+     * 
+     * @return cooldown id
+     */
+    public String getCooldownId()
+    {
+        if(cooldownId != null)
+        {
+            return cooldownId;
+        }
+        
+        Flaggable flaggable = getFlaggable();
+        BaseRecipe recipe = getRecipeDeep();
+        
+        if(recipe == null)
+        {
+            if(unboundId == null)
+            {
+                unboundId = "flag:" + unboundIds.incrementAndGet();
+            }
+            
+            return unboundId; // not remembered as cooldown id in case the flag is added to a recipe later
+        }
+        
+        StringBuilder id = new StringBuilder(32);
+        id.append(recipe.getType()).append(':').append(recipe.hashCode());
         
-        return (get == null ? true : (System.currentTimeMillis() / 1000) >= get.intValue());
+        if(flaggable instanceof ItemResult)
+        {
+            int index = 0;
+            
+            if(recipe instanceof MultiResultRecipe)
+            {
+                List<ItemResult> results = ((MultiResultRecipe)recipe).getResults();
+                
+                while(index < results.size() && results.get(index) != flaggable)
+                {
+                    index++;
+                }
+            }
+            
+            id.append(":result").append(index);
+        }
+        
+        cooldownId = id.toString();
+        return cooldownId;
+    }
+    
+    /**
+     * @return true if the cooldown is saved when the server stops, only flags in a recipe have an id that means the same after a restart
+     */
+    public boolean isCooldownSaved()
+    {
+        return (getRecipeDeep() != null);
     }
     
     public String getFailMessage()
@@ -314,18 +367,7 @@ public class FlagCooldown extends Flag
             return;
         }
         
-        MutableInt get = cooldownTime.get(global ? null : a.playerName());
-        int diff = (int)(System.currentTimeMillis() / 1000) + getCooldownTime();
-        
-        if(get == null)
-        {
-            get = new MutableInt(diff);
-            cooldownTime.put(global ? null : a.playerName(), get);
-        }
-        else
-        {
-            get.setValue(diff);
-        }
+        Cooldowns.set(getCooldownId(), (global ? null : a.playerName()), getCooldownTime() * 1000L, isCooldownSaved());
         
         a.addEffect((global ? Messages.FLAG_COOLDOWN_SET_GLOBAL : Messages.FLAG_COOLDOWN_SET_PERPLAYER), getCraftMessage(), "{time}", timeToString(getCooldownTime()));
     }
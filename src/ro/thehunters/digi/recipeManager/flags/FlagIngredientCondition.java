@@ -835,7 +835,7 @@ public class FlagIngredientCondition extends Flag
                     return false;
                 }
                 
-                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NODATA, getFailMessage(), "{item}", Tools.Item.print(item), "{data}", getDataString());
+                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NODATA, getFailMessage(), "{item}", item, "{data}", getDataString());
                 ok = false;
                 
                 if(getFailMessage() != null)
@@ -851,7 +851,7 @@ public class FlagIngredientCondition extends Flag
                     return false;
                 }
                 
-                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOAMOUNT, getFailMessage(), "{item}", Tools.Item.print(item), "{amount}", getAmount());
+                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOAMOUNT, getFailMessage(), "{item}", item, "{amount}", getAmount());
                 ok = false;
                 
                 if(getFailMessage() != null)
@@ -867,7 +867,7 @@ public class FlagIngredientCondition extends Flag
                     return false;
                 }
                 
-                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOENCHANTS, getFailMessage(), "{item}", Tools.Item.print(item), "{enchants}", getEnchantsString());
+                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOENCHANTS, getFailMessage(), "{item}", item, "{enchants}", getEnchantsString());
                 ok = false;
                 
                 if(getFailMessage() != null)
@@ -890,7 +890,7 @@ public class FlagIngredientCondition extends Flag
                     return false;
                 }
                 
-                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NONAME, getFailMessage(), "{item}", Tools.Item.print(item), "{name}", getName());
+                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NONAME, getFailMessage(), "{item}", item, "{name}", getName());
                 ok = false;
                 
                 if(getFailMessage() != null)
@@ -906,7 +906,7 @@ public class FlagIngredientCondition extends Flag
                     return false;
                 }
                 
-                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOLORE, getFailMessage(), "{item}", Tools.Item.print(item), "{lore}", getLore());
+                a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOLORE, getFailMessage(), "{item}", item, "{lore}", getLore());
                 ok = false;
                 
                 if(getFailMessage() != null)
@@ -936,7 +936,7 @@ public class FlagIngredientCondition extends Flag
                         return false;
                     }
                     
-                    a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOCOLOR, getFailMessage(), "{item}", Tools.Item.print(item), "{color}", getColorString());
+                    a.addReason(Messages.FLAG_INGREDIENTCONDITIONS_NOCOLOR, getFailMessage(), "{item}", item, "{color}", getColorString());
                     ok = false;
                     
                     if(getFailMessage() != null)
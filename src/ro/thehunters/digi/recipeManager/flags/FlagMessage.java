@@ -52,6 +52,7 @@ public class FlagMessage extends Flag
     // Flag code
     
     private List<String> messages = new ArrayList<String>();
+    private List<ArgTemplate> templates; // compiled messages, recompiled if messages were changed
     
     public FlagMessage()
     {
@@ -60,6 +61,7 @@ public class FlagMessage extends Flag
     public FlagMessage(FlagMessage flag)
     {
         messages.addAll(flag.messages);
+        templates = flag.templates;
     }
     
     @Override
@@ -124,6 +126,12 @@ public class FlagMessage extends Flag
     protected boolean onParse(String value)
     {
         addMessage(value);
+        
+        if(messages != null)
+        {
+            templates = ArgTemplate.compile(messages, templates);
+        }
+        
         return true;
     }
     
@@ -132,9 +140,11 @@ public class FlagMessage extends Flag
     {
         Validate.notNull(messages);
         
-        for(String s : messages)
+        templates = ArgTemplate.compile(messages, templates);
+        
+        for(ArgTemplate template : templates)
         {
-            a.addCustomEffect(a.parseVariables(s));
+            a.addCustomEffect(template.parseVariables(a));
         }
     }
 }
@@ -111,6 +111,14 @@ public enum FlagType
         return (bits & bit) == bit;
     }
     
+    /**
+     * @return all bits of this flag type, see {@link Bit}
+     */
+    public int getBits()
+    {
+        return bits;
+    }
+    
     /**
      * @return the class asigned to this type (not the instance)
      */
@@ -1,7 +1,12 @@
 package ro.thehunters.digi.recipeManager.flags;
 
-import java.util.LinkedHashMap;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.Validate;
 
@@ -11,16 +16,44 @@ import ro.thehunters.digi.recipeManager.flags.FlagType.Bit;
 
 public class Flags implements Cloneable
 {
-    private Map<FlagType, Flag> flags = new LinkedHashMap<FlagType, Flag>();
+    private static final int TYPES = FlagType.values().length;
+    
+    // Flag callbacks, flags are only called for the ones their class overrides
+    private static final String[] PHASES = { "onCheck", "onPrepare", "onCrafted", "onFailed" };
+    private static final int CHECK = 0;
+    private static final int PREPARE = 1;
+    private static final int CRAFTED = 2;
+    private static final int FAILED = 3;
+    private static final int CHECK_BY_COST = 4; // check flags sorted by cost, used when checking stops at first failure
+    
+    // Check cost classes, cheaper flags are checked first when checking stops at first failure
+    private static final int COST_MEMORY = 0; // only reads player or in-memory data
+    private static final int COST_LOOKUP = 1; // permission or economy lookups
+    private static final int COST_WORLD = 2; // block or world queries
+    
+    private static final Comparator<Flag> costComparator = new Comparator<Flag>()
+    {
+        @Override
+        public int compare(Flag f1, Flag f2)
+        {
+            return getCost(f1.getType()) - getCost(f2.getType());
+        }
+    };
+    private static final Map<Class<?>, Integer> classPhases = new ConcurrentHashMap<Class<?>, Integer>();
+    
+    private final Flag[] flags = new Flag[TYPES]; // flags by their type's ordinal
+    private final List<Flag> order = new ArrayList<Flag>(); // flags in the order they were added
+    private int bits; // bits of all flag types in this list
+    private Flag[][] phaseFlags; // flags for each phase in the order they were added, null if flags changed since they were last built
     protected Flaggable flaggable;
     
     @Override
     public String toString()
     {
-        StringBuilder s = new StringBuilder(flags.size() * 24);
+        StringBuilder s = new StringBuilder(order.size() * 24);
         boolean first = true;
         
-        for(Flag f : flags.values())
+        for(Flag f : order)
         {
             if(first)
             {
@@ -48,20 +81,25 @@ public class Flags implements Cloneable
     
     public boolean hasFlag(Class<? extends Flag> flagClass)
     {
-        return flags.containsKey(flagClass);
+        return hasFlag(FlagType.getByClass(flagClass));
     }
     
     public boolean hasNoShiftBit()
     {
-        for(FlagType t : flags.keySet())
-        {
-            if(t.hasBit(Bit.NO_SHIFT))
-            {
-                return true;
-            }
-        }
-        
-        return false;
+        return hasBit(Bit.NO_SHIFT);
+    }
+    
+    /**
+     * Checks if the flags in this list have the specified bits, each bit can come from a different flag.<br>
+     * For a single bit this is true if any flag has it, for a mask of multiple bits all of them must be present.
+     * 
+     * @param bit
+     *            See {@link Bit}, can be multiple bits combined with |
+     * @return true if all bits are present
+     */
+    public boolean hasBit(int bit)
+    {
+        return (bits & bit) == bit;
     }
     
     /**
@@ -73,7 +111,7 @@ public class Flags implements Cloneable
      */
     public Flag getFlag(FlagType type)
     {
-        return flags.get(type);
+        return (type == null ? null : flags[type.ordinal()]);
     }
     
     /**
@@ -88,7 +126,7 @@ public class Flags implements Cloneable
      */
     public <T extends Flag>T getFlag(Class<T> flagClass)
     {
-        return flagClass.cast(flags.get(FlagType.getByClass(flagClass)));
+        return flagClass.cast(getFlag(FlagType.getByClass(flagClass)));
     }
     
     /**
@@ -99,7 +137,15 @@ public class Flags implements Cloneable
      */
     public boolean hasFlag(FlagType type)
     {
-        return flags.containsKey(type);
+        return (type != null && flags[type.ordinal()] != null);
+    }
+    
+    /**
+     * @return true if there are no flags in this list
+     */
+    public boolean isEmpty()
+    {
+        return order.isEmpty();
     }
     
     /**
@@ -126,7 +172,7 @@ public class Flags implements Cloneable
         
         if(canAdd(flag))
         {
-            flags.put(flag.getType(), flag);
+            put(flag);
         }
         else
         {
@@ -153,8 +199,23 @@ public class Flags implements Cloneable
             return;
         }
         
-        String[] split = value.split("[:\\s]+", 2); // split by space or : char
-        String flagString = split[0].trim(); // format flag name
+        // split by the first group of spaces or : chars
+        int length = value.length();
+        int end = 1;
+        
+        while(end < length && !isSeparator(value.charAt(end)))
+        {
+            end++;
+        }
+        
+        int start = end;
+        
+        while(start < length && isSeparator(value.charAt(start)))
+        {
+            start++;
+        }
+        
+        String flagString = value.substring(0, end); // format flag name
         FlagType type = FlagType.getByName(flagString); // Find the current flag
         
         // If no valid flag was found
@@ -164,7 +225,7 @@ public class Flags implements Cloneable
             return;
         }
         
-        Flag flag = flags.get(type); // get existing flag, if any
+        Flag flag = flags[type.ordinal()]; // get existing flag, if any
         
         if(flag == null)
         {
@@ -172,7 +233,7 @@ public class Flags implements Cloneable
         }
         
         flag.flagsContainer = this; // set container before hand to allow checks
-        value = (split.length > 1 ? split[1].trim() : null);
+        value = (end < length ? value.substring(start).trim() : null);
         
         // make sure the flag can be added to this flag list
         if(!flag.validateParse(value))
@@ -183,10 +244,50 @@ public class Flags implements Cloneable
         // check if parsed flag had valid values and needs to be added to flag list
         if(flag.onParse(value))
         {
-            flags.put(flag.getType(), flag);
+            put(flag);
+        }
+    }
+    
+    /**
+     * Adds the flag or replaces the flag of the same type while keeping its position.
+     */
+    private void put(Flag flag)
+    {
+        int index = flag.getType().ordinal();
+        Flag previous = flags[index];
+        
+        flags[index] = flag;
+        phaseFlags = null;
+        
+        if(previous == null)
+        {
+            order.add(flag);
+            bits |= flag.getType().getBits();
+        }
+        else if(previous != flag)
+        {
+            order.set(indexOf(previous), flag);
         }
     }
     
+    private int indexOf(Flag flag)
+    {
+        for(int i = 0; i < order.size(); i++)
+        {
+            if(order.get(i) == flag)
+            {
+                return i;
+            }
+        }
+        
+        return -1;
+    }
+    
+    private static boolean isSeparator(char c)
+    {
+        return (c == ':' || Character.isWhitespace(c));
+    }
+    
     /**
      * Removes the specified flag from this flag list.<br>
      * Alias for {@link #removeFlag(FlagType)}
@@ -215,10 +316,20 @@ public class Flags implements Cloneable
             return;
         }
         
-        Flag flag = flags.remove(type);
+        Flag flag = flags[type.ordinal()];
         
         if(flag != null)
         {
+            flags[type.ordinal()] = null;
+            order.remove(indexOf(flag));
+            phaseFlags = null;
+            bits = 0;
+            
+            for(Flag f : order)
+            {
+                bits |= f.getType().getBits();
+            }
+            
             flag.onRemove();
             flag.flagsContainer = null;
         }
@@ -247,7 +358,7 @@ public class Flags implements Cloneable
     {
         a.clear();
         
-        for(Flag flag : flags.values())
+        for(Flag flag : getPhaseFlags(CHECK))
         {
             flag.check(a);
         }
@@ -255,11 +366,51 @@ public class Flags implements Cloneable
         return !a.hasReasons();
     }
     
+    /**
+     * Checks flags and returns if recipe/result can be crafted, use this when failure reasons won't be shown.<br>
+     * If fastFail is true then checking stops at the first flag that fails and reasons are not formatted or stored, cheap flags are checked first.
+     * 
+     * @param a
+     *            arguments class
+     * @param fastFail
+     *            false is the same as {@link #checkFlags(Args)}
+     * @return true if recipe/result can be crafted by the arguments with the current flags
+     */
+    public boolean checkFlags(Args a, boolean fastFail)
+    {
+        if(!fastFail)
+        {
+            return checkFlags(a);
+        }
+        
+        a.clear();
+        a.setCountReasons(true);
+        
+        try
+        {
+            for(Flag flag : getPhaseFlags(CHECK_BY_COST))
+            {
+                flag.check(a);
+                
+                if(a.hasReasons())
+                {
+                    return false;
+                }
+            }
+        }
+        finally
+        {
+            a.setCountReasons(false);
+        }
+        
+        return true;
+    }
+    
     public boolean sendPrepare(Args a)
     {
         a.clear();
         
-        for(Flag flag : flags.values())
+        for(Flag flag : getPhaseFlags(PREPARE))
         {
             flag.prepare(a);
         }
@@ -279,7 +430,7 @@ public class Flags implements Cloneable
     {
         a.clear();
         
-        for(Flag flag : flags.values())
+        for(Flag flag : getPhaseFlags(CRAFTED))
         {
             flag.crafted(a);
         }
@@ -297,7 +448,7 @@ public class Flags implements Cloneable
     {
         a.clear();
         
-        for(Flag flag : flags.values())
+        for(Flag flag : getPhaseFlags(FAILED))
         {
             flag.failed(a);
         }
@@ -309,10 +460,102 @@ public class Flags implements Cloneable
      */
     public void sendRegistered()
     {
-        for(Flag flag : flags.values())
+        for(Flag flag : order)
         {
             flag.registered();
         }
+        
+        getPhaseFlags(CHECK); // build the phase lists now instead of on first craft
+    }
+    
+    private Flag[] getPhaseFlags(int phase)
+    {
+        Flag[][] lists = phaseFlags;
+        
+        if(lists == null)
+        {
+            lists = new Flag[PHASES.length + 1][];
+            
+            for(int p = 0; p < PHASES.length; p++)
+            {
+                List<Flag> list = new ArrayList<Flag>(order.size());
+                
+                for(Flag flag : order)
+                {
+                    if((getPhases(flag.getClass()) & (1 << p)) != 0)
+                    {
+                        list.add(flag);
+                    }
+                }
+                
+                lists[p] = list.toArray(new Flag[list.size()]);
+            }
+            
+            lists[CHECK_BY_COST] = lists[CHECK].clone();
+            Arrays.sort(lists[CHECK_BY_COST], costComparator); // stable sort, keeps added order for the same cost
+            
+            phaseFlags = lists;
+        }
+        
+        return lists[phase];
+    }
+    
+    private static int getCost(FlagType type)
+    {
+        switch(type)
+        {
+            case PERMISSION:
+            case FORPERMISSION:
+            case GROUP:
+            case NEEDMONEY:
+                return COST_LOOKUP;
+            
+            case LIGHTLEVEL:
+            case BIOME:
+            case BLOCKPOWERED:
+            case SETBLOCK:
+                return COST_WORLD;
+            
+            default:
+                return COST_MEMORY;
+        }
+    }
+    
+    /**
+     * @return bitmask of the {@link #PHASES} callbacks the flag class or its parents override
+     */
+    private static int getPhases(Class<?> flagClass)
+    {
+        Integer phases = classPhases.get(flagClass);
+        
+        if(phases == null)
+        {
+            int bits = 0;
+            
+            for(Class<?> c = flagClass; c != null && c != Flag.class; c = c.getSuperclass())
+            {
+                for(Method method : c.getDeclaredMethods())
+                {
+                    Class<?>[] params = method.getParameterTypes();
+                    
+                    if(params.length == 1 && params[0] == Args.class)
+                    {
+                        for(int p = 0; p < PHASES.length; p++)
+                        {
+                            if(method.getName().equals(PHASES[p]))
+                            {
+                                bits |= (1 << p);
+                            }
+                        }
+                    }
+                }
+            }
+            
+            phases = bits;
+            classPhases.put(flagClass, phases);
+        }
+        
+        return phases;
     }
     
     /**
@@ -333,11 +576,11 @@ public class Flags implements Cloneable
     {
         Flags clone = new Flags();
         
-        for(Flag f : flags.values())
+        for(Flag f : order)
         {
             f = f.clone();
             f.flagsContainer = clone;
-            clone.flags.put(f.getType(), f);
+            clone.put(f);
         }
         
         return clone;
@@ -274,6 +274,20 @@ public class BaseRecipe implements Flaggable
         return (flags == null ? true : flags.checkFlags(a));
     }
     
+    /**
+     * Check with flags if recipe can be crafted/used, optionally stopping at the first failure.
+     * 
+     * @param a
+     *            use {@link Args#create()}
+     * @param fastFail
+     *            stop at the first flag that fails without storing reasons, use when reasons won't be shown
+     * @return if recipe can be crafted
+     */
+    public boolean checkFlags(Args a, boolean fastFail)
+    {
+        return (flags == null ? true : flags.checkFlags(a, fastFail));
+    }
+    
     @Override
     public boolean sendCrafted(Args a)
     {
@@ -6,6 +6,7 @@ import org.bukkit.inventory.ItemStack;
 
 import ro.thehunters.digi.recipeManager.Messages;
 import ro.thehunters.digi.recipeManager.RecipeManager;
+import ro.thehunters.digi.recipeManager.Recipes;
 import ro.thehunters.digi.recipeManager.Tools;
 import ro.thehunters.digi.recipeManager.Vanilla;
 import ro.thehunters.digi.recipeManager.flags.FlagType;
@@ -117,9 +118,12 @@ public class FuelRecipe extends BaseRecipe
         return (int)Math.round(20.0 * (maxTime > minTime ? minTime + (maxTime - minTime) * RecipeManager.random.nextFloat() : minTime));
     }
     
-    public String getIndexString()
+    /**
+     * @return packed type and data key used by the fuel index, see {@link Recipes#indexKey(int, short)}
+     */
+    public long getIndexKey()
     {
-        return ingredient.getTypeId() + (ingredient.getDurability() == Vanilla.DATA_WILDCARD ? "" : ":" + ingredient.getDurability());
+        return Recipes.indexKey(ingredient.getTypeId(), ingredient.getDurability());
     }
     
     @Override
@@ -149,6 +149,20 @@ public class ItemResult extends ItemStack implements Flaggable
         return (flags == null ? true : flags.checkFlags(a));
     }
     
+    /**
+     * Check with flags if result can be crafted/used, optionally stopping at the first failure.
+     * 
+     * @param a
+     *            use {@link Args#create()}
+     * @param fastFail
+     *            stop at the first flag that fails without storing reasons, use when reasons won't be shown
+     * @return if result can be crafted
+     */
+    public boolean checkFlags(Args a, boolean fastFail)
+    {
+        return (flags == null ? true : flags.checkFlags(a, fastFail));
+    }
+    
     @Override
     public boolean sendCrafted(Args a)
     {
@@ -244,7 +244,7 @@ public class MultiResultRecipe extends BaseRecipe
         {
             a.clear();
             
-            if(r.checkFlags(a))
+            if(r.checkFlags(a, true)) // reasons aren't shown
             {
                 list.add(r);
                 maxChance += r.getChance();
@@ -32,6 +32,7 @@ public class RecipeInfo
     private String adder;
     private RecipeStatus status;
     private int index;
+    private long fingerprint;
     
     public RecipeInfo(RecipeOwner owner, String adder)
     {
@@ -85,4 +86,20 @@ public class RecipeInfo
     {
         this.index = index;
     }
+    
+    /**
+     * Content fingerprint of recipes loaded from files, made from their file, text and results.<br>
+     * Used on reload to skip re-registering recipes that haven't changed.
+     * 
+     * @return fingerprint or 0 if the recipe doesn't have one
+     */
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+    
+    public void setFingerprint(long fingerprint)
+    {
+        this.fingerprint = fingerprint;
+    }
 }
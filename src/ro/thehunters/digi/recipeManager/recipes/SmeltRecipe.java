@@ -8,6 +8,7 @@ import org.bukkit.inventory.ItemStack;
 
 import ro.thehunters.digi.recipeManager.Messages;
 import ro.thehunters.digi.recipeManager.RecipeManager;
+import ro.thehunters.digi.recipeManager.Recipes;
 import ro.thehunters.digi.recipeManager.Tools;
 import ro.thehunters.digi.recipeManager.Vanilla;
 import ro.thehunters.digi.recipeManager.flags.FlagIngredientCondition;
@@ -63,8 +64,9 @@ public class SmeltRecipe extends SingleResultRecipe
     {
         this.ingredient = ingredient;
         
-        // TODO add data value when furnace-data is pulled
-        hash = ("smelt" + ingredient.getTypeId()).hashCode();
+        short data = ingredient.getDurability();
+        
+        hash = ("smelt" + ingredient.getTypeId() + (data < 0 || data == Vanilla.DATA_WILDCARD ? "" : ":" + data)).hashCode();
     }
     
     public ItemResult getFuel()
@@ -153,12 +155,10 @@ public class SmeltRecipe extends SingleResultRecipe
         
         s.append(ingredient.getType().toString().toLowerCase());
         
-        /* TODO when furnace-data is pulled
-        if(ingredient.getDurability() != Vanilla.DATA_WILDCARD)
+        if(ingredient.getDurability() >= 0 && ingredient.getDurability() != Vanilla.DATA_WILDCARD)
         {
             s.append(":").append(ingredient.getDurability());
         }
-        */
         
         s.append(" to ");
         
@@ -181,9 +181,20 @@ public class SmeltRecipe extends SingleResultRecipe
         return ingredient.getTypeId();
     }
     
-    public String getFuelIndex()
+    /**
+     * @return packed ingredient type and data key used by the smelt index, see {@link Recipes#indexKey(int, short)}
+     */
+    public long getIndexKey()
+    {
+        return Recipes.indexKey(ingredient.getTypeId(), ingredient.getDurability());
+    }
+    
+    /**
+     * @return packed fuel type and data key used by the smelt fuel index, see {@link Recipes#indexKey(int, short)}
+     */
+    public long getFuelIndexKey()
     {
-        return fuel.getTypeId() + (fuel.getDurability() == Vanilla.DATA_WILDCARD ? "" : ":" + fuel.getDurability());
+        return Recipes.indexKey(fuel.getTypeId(), fuel.getDurability());
     }
     
     @Override